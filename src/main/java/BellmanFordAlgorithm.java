@@ -1,3 +1,4 @@
+import java.nio.file.*;
 import java.util.*;
 
 /**
@@ -9,7 +10,27 @@ public class BellmanFordAlgorithm {
     private int source;
     private double[] distance;
     private int[] predecessor;
-    private List<Step> steps; // For visualization
+    private StepTrace trace; // For visualization
+    private boolean recordSteps = true;
+    private TraceWriter traceWriter; // Optional on-disk trace
+    private JfrEvents.TraceRecording recordingEvent; // Open while a recorder is active
+    // Optional renumbering, and the layout built for it
+    private VertexOrdering.Strategy vertexOrder;
+    private Map<Integer, Double[]> vertexPositions = Collections.emptyMap();
+    private VertexOrdering layoutOrder;
+    private int[] layoutOffsets; // by internal source
+    private int[] layoutTo; // internal target
+    private double[] layoutWeight;
+    private int[] layoutEdge; // index in graph.getEdges(), for recorded steps
+    private long layoutVersion;
+    private int layoutSource;
+    private VertexOrdering.Strategy layoutStrategy;
+    private Map<Integer, Double[]> layoutPositions;
+    private int layoutBuilds;
+    // Prior solution for the next run, if warm-started
+    private double[] warmDistance;
+    private int[] warmPredecessor;
+    private Collection<Integer> warmTouched;
 
     /**
      * Represents a single step in the algorithm for visualization.
@@ -41,7 +62,7 @@ public class BellmanFordAlgorithm {
         int arraySize = maxVertex + 1;
         distance = new double[arraySize];
         predecessor = new int[arraySize];
-        steps = new ArrayList<>();
+        trace = new StepTrace();
     }
 
     /**
@@ -50,6 +71,27 @@ public class BellmanFordAlgorithm {
      * @return true if no negative-weight cycles, false otherwise
      */
     public boolean run() {
+        JfrEvents.SolverRun event = new JfrEvents.SolverRun();
+        event.begin();
+        boolean noNegativeCycle;
+        if (warmDistance != null) {
+            noNegativeCycle = runWarm(event);
+        } else if (vertexOrder != null) {
+            noNegativeCycle = runReordered(event);
+        } else {
+            noNegativeCycle = runCold(event);
+        }
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.vertices = graph.getVertices().size();
+            event.negativeCycle = !noNegativeCycle;
+            event.commit();
+        }
+        return noNegativeCycle;
+    }
+
+    /** Plain run: |V| - 1 passes over all edges. */
+    private boolean runCold(JfrEvents.SolverRun runEvent) {
         // Get the actual number of vertices for the correct number of iterations
         int numVertices = graph.getVertices().size();
         int maxVertex = graph.getVertices().stream().mapToInt(Integer::intValue).max().orElse(0);
@@ -59,22 +101,39 @@ public class BellmanFordAlgorithm {
         Arrays.fill(distance, Double.POSITIVE_INFINITY);
         Arrays.fill(predecessor, -1);
         distance[source] = 0;
-        steps.clear();
 
         List<Graph.Edge> edges = graph.getEdges();
+        StepRecorder recorder = startRecording(edges);
 
         // Run |V| - 1 iterations (not maxVertex iterations)
+        long totalRelaxations = 0;
         for (int i = 1; i < numVertices; i++) {
-            for (Graph.Edge e : edges) {
+            JfrEvents.SolverRound roundEvent = new JfrEvents.SolverRound();
+            roundEvent.begin();
+            int relaxations = 0;
+            if (recorder != null) {
+                recorder.beginRound(i);
+            }
+            for (int j = 0; j < edges.size(); j++) {
+                Graph.Edge e = edges.get(j);
                 boolean relaxed = false;
                 if (distance[e.from] + e.weight < distance[e.to]) {
                     distance[e.to] = distance[e.from] + e.weight;
                     predecessor[e.to] = e.from;
                     relaxed = true;
+                    relaxations++;
+                }
+                if (recorder != null) {
+                    recorder.record(i, j, relaxed, distance[e.to]);
                 }
-                steps.add(new Step(i, e, distance, predecessor, relaxed));
             }
+            totalRelaxations += relaxations;
+            commitRound(roundEvent, i, edges.size(), relaxations);
         }
+        finishRecording(recorder);
+        runEvent.edges = edges.size();
+        runEvent.rounds = Math.max(0, numVertices - 1);
+        runEvent.relaxations = totalRelaxations;
 
         // Check for negative-weight cycles
         for (Graph.Edge e : edges) {
@@ -85,9 +144,454 @@ public class BellmanFordAlgorithm {
         return true;
     }
 
-    /** Returns the list of steps for visualization. */
+    /**
+     * Solves on vertices renumbered by {@code strategy} (null turns it off) so
+     * that neighbours sit close together in memory; distances and
+     * predecessors are still reported by original vertex id. HILBERT orders
+     * by {@code positions}, e.g. the visualizer's vertex positions.
+     *
+     * Reordered runs visit edges in internal order and stop once a round
+     * changes nothing, so recorded steps come in a different order and may be
+     * fewer than in an unordered run; they still name edges by their index in
+     * {@link Graph#getEdges()}. Where several shortest paths tie, the
+     * predecessor chosen may differ. Warm-started runs are not reordered.
+     *
+     * The ordering and edge layout are built on the first run and reused until
+     * the graph, source, strategy or positions map changes; changes to the
+     * positions inside the same map are not noticed.
+     */
+    public void setVertexOrder(VertexOrdering.Strategy strategy, Map<Integer, Double[]> positions) {
+        this.vertexOrder = strategy;
+        this.vertexPositions = positions != null ? positions : Collections.emptyMap();
+    }
+
+    /** Returns how many times a reordered edge layout has been built. */
+    public int getLayoutBuilds() {
+        return layoutBuilds;
+    }
+
+    /**
+     * Builds the reordered edge layout unless the cached one still matches:
+     * edges by internal source, each row sorted by internal target.
+     */
+    private void buildLayout() {
+        if (layoutOrder != null && layoutVersion == graph.getVersion() && layoutSource == source
+                && layoutStrategy == vertexOrder && layoutPositions == vertexPositions) {
+            return;
+        }
+        VertexOrdering order = VertexOrdering.of(graph, vertexOrder, source, vertexPositions);
+        // getEdges() lists each vertex's outgoing edges together, in order
+        Map<Integer, Integer> firstEdge = new HashMap<>();
+        List<Graph.Edge> edges = graph.getEdges();
+        for (int j = 0; j < edges.size(); j++) {
+            firstEdge.putIfAbsent(edges.get(j).from, j);
+        }
+        int n = order.size();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + graph.getOutgoingEdges(order.toExternal(u)).size();
+        }
+        int[] to = new int[offsets[n]];
+        double[] weight = new double[offsets[n]];
+        int[] edge = new int[offsets[n]];
+        long[] row = new long[0];
+        for (int u = 0; u < n; u++) {
+            List<Graph.Edge> out = graph.getOutgoingEdges(order.toExternal(u));
+            if (row.length < out.size()) {
+                row = new long[out.size()];
+            }
+            for (int k = 0; k < out.size(); k++) {
+                row[k] = ((long) order.toInternal(out.get(k).to) << 32) | k;
+            }
+            Arrays.sort(row, 0, out.size());
+            for (int k = 0; k < out.size(); k++) {
+                int original = (int) row[k];
+                to[offsets[u] + k] = (int) (row[k] >>> 32);
+                weight[offsets[u] + k] = out.get(original).weight;
+                edge[offsets[u] + k] = firstEdge.getOrDefault(order.toExternal(u), 0) + original;
+            }
+        }
+        layoutOrder = order;
+        layoutOffsets = offsets;
+        layoutTo = to;
+        layoutWeight = weight;
+        layoutEdge = edge;
+        layoutVersion = graph.getVersion();
+        layoutSource = source;
+        layoutStrategy = vertexOrder;
+        layoutPositions = vertexPositions;
+        layoutBuilds++;
+    }
+
+    /**
+     * Run on internal ids over the cached layout, then results are mapped
+     * back. While recording, the live arrays are kept in step with every
+     * relaxation.
+     */
+    private boolean runReordered(JfrEvents.SolverRun runEvent) {
+        int numVertices = graph.getVertices().size();
+        buildLayout();
+        VertexOrdering order = layoutOrder;
+        int n = order.size();
+        int[] offsets = layoutOffsets;
+        int[] to = layoutTo;
+        double[] weight = layoutWeight;
+
+        int maxVertex = graph.getVertices().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int arraySize = Math.max(maxVertex, source) + 1;
+        if (distance.length < arraySize) {
+            distance = new double[arraySize];
+            predecessor = new int[arraySize];
+        }
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+        distance[source] = 0;
+        StepRecorder recorder = null;
+        if (traceWriter != null || recordSteps) {
+            recorder = startRecording(graph.getEdges());
+        } else {
+            trace.clear();
+        }
+
+        double[] d = new double[n];
+        int[] p = new int[n];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        Arrays.fill(p, -1);
+        int s = order.toInternal(source);
+        if (s >= 0) {
+            d[s] = 0;
+        }
+        long totalRelaxations = 0;
+        int rounds = 0;
+        for (int i = 1; i < numVertices; i++) {
+            JfrEvents.SolverRound roundEvent = new JfrEvents.SolverRound();
+            roundEvent.begin();
+            int relaxations = 0;
+            if (recorder != null) {
+                recorder.beginRound(i);
+            }
+            for (int u = 0; u < n; u++) {
+                double du = d[u];
+                if (du == Double.POSITIVE_INFINITY && recorder == null) {
+                    continue;
+                }
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = to[k];
+                    boolean relaxed = false;
+                    if (du + weight[k] < d[v]) {
+                        d[v] = du + weight[k];
+                        p[v] = u;
+                        relaxed = true;
+                        relaxations++;
+                    }
+                    if (recorder != null) {
+                        if (relaxed) {
+                            distance[order.toExternal(v)] = d[v];
+                            predecessor[order.toExternal(v)] = order.toExternal(u);
+                        }
+                        recorder.record(i, layoutEdge[k], relaxed, d[v]);
+                    }
+                }
+            }
+            rounds = i;
+            totalRelaxations += relaxations;
+            commitRound(roundEvent, i, offsets[n], relaxations);
+            if (relaxations == 0) {
+                break; // converged; later rounds would change nothing
+            }
+        }
+        finishRecording(recorder);
+        boolean noNegativeCycle = true;
+        for (int u = 0; u < n && noNegativeCycle; u++) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                if (d[u] + weight[k] < d[to[k]]) {
+                    noNegativeCycle = false;
+                    break;
+                }
+            }
+        }
+
+        for (int u = 0; u < n; u++) {
+            int v = order.toExternal(u);
+            distance[v] = d[u];
+            predecessor[v] = p[u] < 0 ? -1 : order.toExternal(p[u]);
+        }
+        runEvent.edges = offsets[n];
+        runEvent.rounds = rounds;
+        runEvent.relaxations = totalRelaxations;
+        return noNegativeCycle;
+    }
+
+    /**
+     * Streams steps of the next {@link #run()} into {@code writer} instead of
+     * keeping them in memory. Runs after that record in memory again; pass
+     * null to cancel before running.
+     */
+    public void setTraceWriter(TraceWriter writer) {
+        this.traceWriter = writer;
+    }
+
+    /**
+     * Seeds the next {@link #run()} with a previous solution for the same
+     * source, e.g. from before a small batch of edits. The prior distances are
+     * treated as upper bounds: entries whose predecessor edge no longer exists
+     * or no longer supports the distance are discarded along with their
+     * subtree. {@code touched} must contain every vertex whose outgoing edges
+     * were added or made cheaper since the prior solution; relaxation starts
+     * from those vertices instead of sweeping all edges |V| - 1 times.
+     */
+    public void warmStart(double[] priorDistance, int[] priorPredecessor, Collection<Integer> touched) {
+        if (priorDistance.length != priorPredecessor.length) {
+            throw new IllegalArgumentException("Distance and predecessor arrays differ in length");
+        }
+        this.warmDistance = Arrays.copyOf(priorDistance, priorDistance.length);
+        this.warmPredecessor = Arrays.copyOf(priorPredecessor, priorPredecessor.length);
+        this.warmTouched = new ArrayList<>(touched);
+    }
+
+    /**
+     * Warm-started run: validates the prior shortest-path tree, then relaxes
+     * from a FIFO queue seeded with the touched vertices. A vertex entering
+     * the queue more than |V| times means a reachable negative cycle.
+     */
+    private boolean runWarm(JfrEvents.SolverRun runEvent) {
+        int numVertices = graph.getVertices().size();
+        int maxVertex = graph.getVertices().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int arraySize = Math.max(maxVertex, source) + 1;
+        double[] priorDistance = warmDistance;
+        int[] priorPredecessor = warmPredecessor;
+        Collection<Integer> touched = warmTouched;
+        warmDistance = null;
+        warmPredecessor = null;
+        warmTouched = null;
+
+        distance = new double[arraySize];
+        predecessor = new int[arraySize];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+
+        // Walk the prior tree from the source, keeping only entries backed by
+        // an existing edge; everything else starts over at infinity.
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        for (int v : graph.getVertices()) {
+            int p = v < priorPredecessor.length ? priorPredecessor[v] : -1;
+            if (p >= 0 && p != v && graph.getVertices().contains(p)) {
+                children.computeIfAbsent(p, k -> new ArrayList<>()).add(v);
+            }
+        }
+        Deque<Integer> queue = new ArrayDeque<>();
+        boolean[] inQueue = new boolean[arraySize];
+        int[] enqueued = new int[arraySize];
+        distance[source] = 0;
+        int kept = 1;
+        int priorReachable = 0;
+        for (int v : graph.getVertices()) {
+            if (v < priorDistance.length && priorDistance[v] != Double.POSITIVE_INFINITY) {
+                priorReachable++;
+            }
+        }
+        Deque<Integer> walk = new ArrayDeque<>();
+        walk.add(source);
+        while (!walk.isEmpty()) {
+            int u = walk.poll();
+            for (int c : children.getOrDefault(u, Collections.emptyList())) {
+                if (c == source) {
+                    continue;
+                }
+                Graph.Edge e = findEdge(u, c);
+                double prior = priorDistance[c];
+                if (e != null && distance[u] + e.weight <= prior) {
+                    distance[c] = prior;
+                    predecessor[c] = u;
+                    kept++;
+                    walk.add(c);
+                }
+            }
+        }
+        // Seeds: touched vertices, plus (if anything was discarded) every
+        // vertex with an edge that now improves its target.
+        for (int v : touched) {
+            if (v >= 0 && v < arraySize && distance[v] != Double.POSITIVE_INFINITY) {
+                enqueue(queue, inQueue, enqueued, v);
+            }
+        }
+        boolean discarded = kept < priorReachable || source >= priorDistance.length || priorDistance[source] != 0;
+        if (discarded) {
+            for (Graph.Edge e : graph.getEdges()) {
+                if (distance[e.from] + e.weight < distance[e.to]) {
+                    enqueue(queue, inQueue, enqueued, e.from);
+                }
+            }
+        }
+
+        Map<Graph.Edge, Integer> edgeIndex = null;
+        StepRecorder recorder = null;
+        if (traceWriter != null || recordSteps) {
+            List<Graph.Edge> edges = graph.getEdges();
+            edgeIndex = new IdentityHashMap<>();
+            for (int j = 0; j < edges.size(); j++) {
+                edgeIndex.put(edges.get(j), j);
+            }
+            recorder = startRecording(edges);
+        }
+        int pass = 1;
+        int passRemaining = queue.size();
+        boolean noNegativeCycle = true;
+        long scanned = 0, relaxations = 0, totalRelaxations = 0;
+        JfrEvents.SolverRound roundEvent = new JfrEvents.SolverRound();
+        roundEvent.begin();
+        if (recorder != null && !queue.isEmpty()) {
+            recorder.beginRound(pass);
+        }
+        while (!queue.isEmpty() && noNegativeCycle) {
+            int u = queue.poll();
+            inQueue[u] = false;
+            for (Graph.Edge e : graph.getOutgoingEdges(u)) {
+                boolean relaxed = false;
+                scanned++;
+                if (distance[u] + e.weight < distance[e.to]) {
+                    distance[e.to] = distance[u] + e.weight;
+                    predecessor[e.to] = u;
+                    relaxed = true;
+                    relaxations++;
+                    if (!inQueue[e.to]) {
+                        if (enqueued[e.to] >= numVertices) {
+                            noNegativeCycle = false;
+                        }
+                        enqueue(queue, inQueue, enqueued, e.to);
+                    }
+                }
+                if (recorder != null) {
+                    recorder.record(pass, edgeIndex.get(e), relaxed, distance[e.to]);
+                }
+            }
+            if (--passRemaining == 0 || queue.isEmpty() || !noNegativeCycle) {
+                commitRound(roundEvent, pass, scanned, relaxations);
+                totalRelaxations += relaxations;
+                scanned = 0;
+                relaxations = 0;
+                pass++;
+                passRemaining = queue.size();
+                roundEvent = new JfrEvents.SolverRound();
+                roundEvent.begin();
+                if (recorder != null && !queue.isEmpty() && noNegativeCycle) {
+                    recorder.beginRound(pass);
+                }
+            }
+        }
+        finishRecording(recorder);
+        runEvent.warmStart = true;
+        runEvent.edges = graph.getEdges().size();
+        runEvent.rounds = pass - 1;
+        runEvent.relaxations = totalRelaxations;
+        return noNegativeCycle;
+    }
+
+    private static void commitRound(JfrEvents.SolverRound event, int round, long scanned, long relaxations) {
+        if (event.shouldCommit()) {
+            event.round = round;
+            event.edgesScanned = scanned;
+            event.relaxations = relaxations;
+            event.commit();
+        }
+    }
+
+    /**
+     * Clears the in-memory trace and starts whichever recorder is active:
+     * the trace writer, the in-memory trace, or none.
+     */
+    private StepRecorder startRecording(List<Graph.Edge> edges) {
+        trace.clear();
+        StepRecorder recorder = traceWriter != null ? traceWriter : recordSteps ? trace : null;
+        if (recorder != null) {
+            recordingEvent = new JfrEvents.TraceRecording();
+            recordingEvent.begin();
+            recorder.begin(graph, source, edges, distance, predecessor);
+        }
+        return recorder;
+    }
+
+    /** Finishes the recorder started by {@link #startRecording}, if any. */
+    private void finishRecording(StepRecorder recorder) {
+        if (recorder == null) {
+            return;
+        }
+        recorder.finish();
+        JfrEvents.TraceRecording event = recordingEvent;
+        recordingEvent = null;
+        if (event.shouldCommit()) {
+            event.recorder = recorder.getClass().getSimpleName();
+            event.steps = recorder == traceWriter ? traceWriter.getStepCount() : trace.getRecordedCount();
+            event.commit();
+        }
+        if (recorder == traceWriter) {
+            traceWriter = null; // a writer holds one run; later runs record in memory
+        }
+    }
+
+    private static void enqueue(Deque<Integer> queue, boolean[] inQueue, int[] enqueued, int v) {
+        if (!inQueue[v]) {
+            inQueue[v] = true;
+            enqueued[v]++;
+            queue.add(v);
+        }
+    }
+
+    private Graph.Edge findEdge(int from, int to) {
+        for (Graph.Edge e : graph.getOutgoingEdges(from)) {
+            if (e.to == to) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Turns in-memory step recording on (the default) or off. With recording
+     * off, {@link #run()} does no per-step work beyond relaxation.
+     */
+    public void setRecordSteps(boolean recordSteps) {
+        this.recordSteps = recordSteps;
+    }
+
+    /**
+     * Keeps only about the last {@code maxSteps} steps in memory (0 for all),
+     * dropping older ones ring-buffer style. Applies from the next run.
+     */
+    public void setTraceCapacity(long maxSteps) {
+        trace.setCapacity(maxSteps);
+    }
+
+    /**
+     * Limits the memory used by recorded steps to about {@code bytes}
+     * (0, the default, for no limit). Older steps are spilled to
+     * {@code spillDirectory}, or dropped down to one checkpoint per round if
+     * it is null; see {@link StepTrace#setMemoryBudget}. Applies from the
+     * next run.
+     */
+    public void setTraceMemoryBudget(long bytes, Path spillDirectory) {
+        trace.setMemoryBudget(bytes, spillDirectory);
+    }
+
+    /**
+     * Returns the list of steps for visualization. Steps are rebuilt from the
+     * compact trace on access.
+     */
     public List<Step> getSteps() {
-        return steps;
+        return trace.asSteps();
+    }
+
+    /**
+     * Releases the recorded steps and deletes any spill file; views from
+     * {@link #getSteps()} become empty.
+     */
+    public void close() {
+        trace.close();
+    }
+
+    /** Returns the in-memory trace behind {@link #getSteps()}. */
+    public StepTrace getTrace() {
+        return trace;
     }
 
     /** Returns the shortest distances from the source. */
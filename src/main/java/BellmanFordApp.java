@@ -6,9 +6,14 @@ import javafx.application.Application;
 import javafx.stage.Stage;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.Random;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,26 +23,51 @@ import java.util.List;
  * Launches the JavaFX GUI.
  */
 public class BellmanFordApp extends Application {
+    private GraphJournal journal;
+    private BellmanFordVisualizer visualizer;
+
     @Override
     public void start(Stage primaryStage) {
-        // Initialize a sample graph for demonstration
-        Graph graph = new Graph();
-        graph.addEdge(0, 1, 4);
-        graph.addEdge(0, 2, 5);
-        graph.addEdge(1, 2, -3);
-        graph.addEdge(2, 3, 4);
-        graph.addEdge(3, 1, 6);
-        BellmanFordVisualizer visualizer = new BellmanFordVisualizer(graph);
+        // An optional trace file argument replays a recorded run
+        List<String> args = getParameters().getUnnamed();
+        TraceReader trace = args.isEmpty() ? null : openTrace(args.get(0));
+        // --journal=<dir> keeps the edited graph across sessions
+        String journalDir = getParameters().getNamed().get("journal");
+        Graph graph;
+        if (trace != null) {
+            graph = trace.getGraph();
+        } else if (journalDir != null) {
+            graph = new Graph();
+            journal = openJournal(journalDir, graph);
+            if (graph.getVertices().isEmpty()) {
+                sampleGraph().getEdges().forEach(e -> graph.addEdge(e.from, e.to, e.weight));
+            }
+        } else {
+            graph = sampleGraph();
+        }
+        visualizer = new BellmanFordVisualizer(graph);
+        if (trace != null) {
+            visualizer.loadTrace(trace);
+        }
 
         // Controls for step navigation
         Button runBtn = new Button("Run Bellman-Ford");
+        Button solveBtn = new Button("Solve");
         Button nextBtn = new Button("Next");
         Button prevBtn = new Button("Previous");
         Button playBtn = new Button("Play");
         Button pauseBtn = new Button("Pause");
         Button randomizeBtn = new Button("Randomize Weights");
         Button clearBtn = new Button("Clear");
-        HBox controls = new HBox(10, runBtn, prevBtn, nextBtn, playBtn, pauseBtn, randomizeBtn, clearBtn);
+        Button layoutBtn = new Button("Auto Layout");
+        Button seekBtn = new Button("Seek...");
+        // Playback speed on a log scale: 10^-1 to 10^4 steps per frame
+        Slider speedSlider = new Slider(-1, 4, -1);
+        speedSlider.setPrefWidth(120);
+        Label speedLabel = new Label();
+        Label engineLabel = new Label();
+        HBox controls = new HBox(10, runBtn, solveBtn, engineLabel, prevBtn, nextBtn, playBtn, pauseBtn, seekBtn,
+                speedSlider, speedLabel, randomizeBtn, clearBtn, layoutBtn);
         controls.setStyle("-fx-padding: 10; -fx-alignment: center;");
 
         BorderPane root = new BorderPane();
@@ -60,26 +90,46 @@ public class BellmanFordApp extends Application {
             System.out.println("Algorithm generated " + steps.size() + " steps");
             visualizer.loadSteps(steps);
         });
+        solveBtn.setOnAction(e -> {
+            // Final distances only, from whichever algorithm suits the graph
+            int source = visualizer.getSourceVertex();
+            if (!graph.getVertices().contains(source)) {
+                engineLabel.setText("Source is not a vertex");
+                return;
+            }
+            ShortestPathSolver solver = new ShortestPathSolver(graph);
+            ShortestPathResult result = solver.solve(source);
+            String engine = solver.getLastReport().engine.toString();
+            if (solver.getLastReport().engine == ShortestPathSolver.Engine.BELLMAN_FORD
+                    && !result.hasNoNegativeCycle()) {
+                // Keep the distances the negative cycle does not reach
+                ComponentSolver components = new ComponentSolver(graph);
+                result = components.solve(source);
+                engine += " (negative cycle, " + components.getLastReport().negativeComponents.size()
+                        + " component(s))";
+            }
+            visualizer.showFinalDistances(result.getDistances());
+            engineLabel.setText(engine);
+        });
         nextBtn.setOnAction(e -> visualizer.nextStep());
         prevBtn.setOnAction(e -> visualizer.prevStep());
         playBtn.setOnAction(e -> visualizer.play());
         pauseBtn.setOnAction(e -> visualizer.pause());
+        seekBtn.setOnAction(e -> visualizer.promptSeek());
+        speedSlider.valueProperty().addListener((obs, oldValue, value) -> {
+            double stepsPerFrame = Math.pow(10, value.doubleValue());
+            visualizer.setPlaybackSpeed(stepsPerFrame);
+            speedLabel.setText(String.format("%.1f steps/frame", stepsPerFrame));
+        });
+        speedLabel.setText("0.1 steps/frame");
         randomizeBtn.setOnAction(e -> {
-            Random rand = new Random();
-            var vertices = new ArrayList<>(graph.getVertices());
-            for (int i = 0; i < vertices.size(); i++) {
-                for (int j = i + 1; j < vertices.size(); j++) {
-                    int from = vertices.get(i);
-                    int to = vertices.get(j);
-                    double weight = -10 + rand.nextDouble() * 20; // random weight between -10 and 10
-                    weight = Math.round(weight * 10.0) / 10.0; // round to 1 decimal
-                    graph.addEdge(from, to, weight);
-                    graph.removeEdge(to, from); // ensure only one direction
-                }
-            }
+            // Complete DAG in vertex order, random weights between -10 and 10
+            GraphGenerators.randomizeCompleteDag(graph, new ArrayList<>(graph.getVertices()), new Random().nextLong());
             visualizer.drawGraph();
         });
+        layoutBtn.setOnAction(e -> visualizer.startAutoLayout());
         clearBtn.setOnAction(e -> {
+            visualizer.stopAutoLayout();
             // Remove all nodes and edges
             for (int v : new ArrayList<>(graph.getVertices())) {
                 graph.removeVertex(v);
@@ -89,6 +139,45 @@ public class BellmanFordApp extends Application {
         });
     }
 
+    /** Builds the sample graph shown on startup. */
+    private static Graph sampleGraph() {
+        Graph graph = new Graph();
+        graph.addEdge(0, 1, 4);
+        graph.addEdge(0, 2, 5);
+        graph.addEdge(1, 2, -3);
+        graph.addEdge(2, 3, 4);
+        graph.addEdge(3, 1, 6);
+        return graph;
+    }
+
+    /** Opens a trace file written by {@link TraceWriter}. */
+    private static TraceReader openTrace(String path) {
+        try {
+            return TraceReader.open(Paths.get(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Opens the journal in {@code dir}, replaying it into {@code graph}. */
+    private static GraphJournal openJournal(String dir, Graph graph) {
+        try {
+            return GraphJournal.open(Paths.get(dir), graph);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stop() throws IOException {
+        if (visualizer != null) {
+            visualizer.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
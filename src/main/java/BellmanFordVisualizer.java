@@ -4,8 +4,9 @@ import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
 import javafx.scene.text.Text;
 import java.util.*;
-import javafx.animation.PauseTransition;
-import javafx.util.Duration;
+import javafx.application.Platform;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.control.TextInputDialog;
@@ -32,7 +33,7 @@ import javafx.scene.layout.Priority;
  * JavaFX Pane for visualizing the graph and Bellman-Ford algorithm.
  * Handles drawing, animation, and user interaction.
  */
-public class BellmanFordVisualizer extends StackPane {
+public class BellmanFordVisualizer extends StackPane implements PlaybackEngine.Target {
 
     /**
      * Data class for table rows showing distance information.
@@ -65,22 +66,32 @@ public class BellmanFordVisualizer extends StackPane {
     private Map<Integer, Circle> vertexNodes = new HashMap<>();
     private Map<Graph.Edge, Line> edgeLines = new HashMap<>();
     private Map<Integer, Text> distanceLabels = new HashMap<>();
+    private Map<Integer, Text> vertexLabels = new HashMap<>();
+    private Map<Graph.Edge, Text> weightLabels = new HashMap<>();
     private int selectedVertex = -1;
     private List<BellmanFordAlgorithm.Step> steps = Collections.emptyList();
     private int currentStep = 0;
-    private PauseTransition playTimer;
+    private final PlaybackEngine playback = new PlaybackEngine(this);
+    private Line highlightedLine; // edge highlighted by the current step
+    private int[] relaxedSteps; // indices of relaxing steps, built on first seek
     private double[] lastDistances;
     private int sourceVertex = 0;
     private Integer tempEdgeFrom = null; // For edge creation
     public Map<Integer, Double[]> vertexPositions = new HashMap<>(); // Store positions for each vertex
     private boolean isDragging = false;
 
+    // Background auto-layout; only the latest published positions are rendered
+    private ForceDirectedLayout layout;
+    private final AtomicReference<Map<Integer, Double[]>> pendingLayout = new AtomicReference<>();
+    private final AtomicBoolean layoutRenderQueued = new AtomicBoolean();
+
     // Table components for distance tracking
     private TableView<DistanceRow> distanceTable;
     private ObservableList<DistanceRow> tableData = FXCollections.observableArrayList();
 
     private AnchorPane graphPane; // For graph drawing only
     private VBox overlayBox; // For table and legend
+    private final Text traceDetailText = new Text();
     private static final double LEFT_MARGIN = 300; // px reserved for sidebar (table + legend)
 
     public BellmanFordVisualizer(Graph graph) {
@@ -172,7 +183,9 @@ public class BellmanFordVisualizer extends StackPane {
 
         // Add legend below the table inside sidebar
         VBox.setVgrow(distanceTable, Priority.ALWAYS);
-        overlayBox.getChildren().setAll(distanceTable, legend);
+        traceDetailText.setWrappingWidth(260);
+        overlayBox.getChildren().setAll(distanceTable, traceDetailText, legend);
+        VBox.setMargin(traceDetailText, new Insets(10, 10, 0, 10));
         VBox.setMargin(legend, new Insets(10, 10, 10, 10));
     }
 
@@ -196,6 +209,7 @@ public class BellmanFordVisualizer extends StackPane {
         }
 
         Integer clickedVertex = getVertexAt(x, y);
+        stopAutoLayout();
         // Only allow node creation if not dragging
         if (event.getButton() == MouseButton.PRIMARY && !isDragging) {
             if (clickedVertex == null) {
@@ -337,8 +351,12 @@ public class BellmanFordVisualizer extends StackPane {
      */
     public void loadSteps(List<BellmanFordAlgorithm.Step> steps) {
         System.out.println("loadSteps called with " + (steps != null ? steps.size() : "null") + " steps");
+        if (traceOf(this.steps) != null && traceOf(this.steps) != traceOf(steps)) {
+            traceOf(this.steps).close(); // nothing else shows the replaced run
+        }
         this.steps = steps;
         this.currentStep = 0;
+        this.relaxedSteps = null;
         if (!steps.isEmpty()) {
             // Show the final distances from the last step
             BellmanFordAlgorithm.Step lastStep = steps.get(steps.size() - 1);
@@ -351,6 +369,30 @@ public class BellmanFordVisualizer extends StackPane {
         }
         drawGraph();
         updateDistances(lastDistances);
+        updateTraceDetail();
+    }
+
+    /** Releases the loaded steps, deleting their spill file if any. */
+    public void close() {
+        if (traceOf(steps) != null) {
+            traceOf(steps).close();
+        }
+        steps = null;
+        currentStep = 0;
+        relaxedSteps = null;
+    }
+
+    private static StepTrace traceOf(List<BellmanFordAlgorithm.Step> steps) {
+        return steps instanceof StepTrace.View ? ((StepTrace.View) steps).getTrace() : null;
+    }
+
+    /**
+     * Loads a recorded trace file for offline inspection. The visualizer should
+     * be showing {@code trace.getGraph()} so highlighted edges match.
+     */
+    public void loadTrace(TraceReader trace) {
+        this.sourceVertex = trace.getSource();
+        loadSteps(trace.asSteps());
     }
 
     /**
@@ -365,17 +407,178 @@ public class BellmanFordVisualizer extends StackPane {
         BellmanFordAlgorithm.Step step = steps.get(currentStep);
         animateStep(step);
         currentStep++;
+        updateTraceDetail();
         System.out.println("nextStep completed - new currentStep: " + currentStep);
     }
 
     /**
-     * Moves to the previous step and animates it.
+     * Moves to the previous step and shows it.
      */
     public void prevStep() {
         if (steps == null || currentStep <= 1)
             return;
-        currentStep -= 2;
-        nextStep();
+        seek(currentStep - 2);
+    }
+
+    /**
+     * Shows step {@code index} directly, without replaying earlier steps.
+     * The following {@link #nextStep()} continues from there.
+     */
+    @Override
+    public void seek(int index) {
+        if (steps == null || steps.isEmpty())
+            return;
+        int clamped = Math.max(0, Math.min(index, steps.size() - 1));
+        animateStep(steps.get(clamped));
+        currentStep = clamped + 1;
+        updateTraceDetail();
+    }
+
+    /**
+     * Tells the user how much of the trace is still available in detail when
+     * a memory budget spilled or reduced older steps.
+     */
+    private void updateTraceDetail() {
+        if (!(steps instanceof StepTrace.View)) {
+            traceDetailText.setText("");
+            return;
+        }
+        StepTrace trace = ((StepTrace.View) steps).getTrace();
+        long budgetDropped = trace.getBudgetDroppedCount();
+        long spilled = trace.getSpilledCount();
+        StringBuilder text = new StringBuilder();
+        if (trace.getFirstStep() > budgetDropped) {
+            text.append(trace.getFirstStep() - budgetDropped).append(" older steps dropped (trace capacity).\n");
+        }
+        if (budgetDropped > 0) {
+            text.append(budgetDropped).append(" older steps dropped (memory budget); ")
+                    .append(trace.getCheckpoints().size()).append(" round checkpoints kept.\n");
+        }
+        if (spilled > 0) {
+            text.append(spilled).append(" steps spilled to disk; seeking there is slower.\n");
+        }
+        traceDetailText.setText(text.toString().trim());
+    }
+
+    /**
+     * Seeks to the first step of iteration {@code iteration} (1-based), or the
+     * last step if the run had fewer iterations.
+     */
+    public void seekToIteration(int iteration) {
+        if (steps == null || steps.isEmpty())
+            return;
+        // Iterations are non-decreasing along the trace
+        int lo = 0, hi = steps.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (iterationAt(mid) < iteration) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        seek(lo);
+    }
+
+    /**
+     * Seeks to the {@code n}-th step (1-based) that relaxed an edge, or the
+     * last step if there were fewer relaxations.
+     */
+    public void seekToRelaxation(int n) {
+        if (steps == null || steps.isEmpty())
+            return;
+        if (relaxedSteps == null) {
+            int[] found = new int[16];
+            int count = 0;
+            for (int i = 0; i < steps.size(); i++) {
+                if (isRelaxedAt(i)) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = i;
+                }
+            }
+            relaxedSteps = Arrays.copyOf(found, count);
+        }
+        if (n >= 1 && n <= relaxedSteps.length) {
+            seek(relaxedSteps[n - 1]);
+        } else {
+            seek(steps.size() - 1);
+        }
+    }
+
+    /** Reads a step's iteration, without rebuilding snapshots when the trace allows. */
+    private int iterationAt(int i) {
+        if (steps instanceof StepTrace.View) {
+            return ((StepTrace.View) steps).iterationAt(i);
+        }
+        if (steps instanceof TraceReader.View) {
+            return ((TraceReader.View) steps).iterationAt(i);
+        }
+        return steps.get(i).iteration;
+    }
+
+    /** Reads a step's relaxed flag, without rebuilding snapshots when the trace allows. */
+    private boolean isRelaxedAt(int i) {
+        if (steps instanceof StepTrace.View) {
+            return ((StepTrace.View) steps).isRelaxed(i);
+        }
+        if (steps instanceof TraceReader.View) {
+            return ((TraceReader.View) steps).isRelaxed(i);
+        }
+        return steps.get(i).relaxed;
+    }
+
+    /**
+     * Asks the user for a step, iteration or relaxation number and seeks to it.
+     */
+    public void promptSeek() {
+        ChoiceDialog<String> kind = new ChoiceDialog<>("Iteration", Arrays.asList("Step", "Iteration", "Relaxation"));
+        kind.setTitle("Seek");
+        kind.setHeaderText("Jump to a point in the run");
+        kind.setContentText("Seek by:");
+        Optional<String> choice = kind.showAndWait();
+        if (!choice.isPresent())
+            return;
+        TextInputDialog dialog = new TextInputDialog("1");
+        dialog.setTitle("Seek");
+        dialog.setHeaderText(choice.get() + " number (starting at 1)");
+        dialog.setContentText(choice.get() + ":");
+        Optional<String> result = dialog.showAndWait();
+        if (!result.isPresent())
+            return;
+        try {
+            int n = Integer.parseInt(result.get().trim());
+            pause();
+            if (choice.get().equals("Step")) {
+                seek(n - 1);
+            } else if (choice.get().equals("Iteration")) {
+                seekToIteration(n);
+            } else {
+                seekToRelaxation(n);
+            }
+        } catch (NumberFormatException e) {
+            showError("Invalid number.");
+        }
+    }
+
+    /** Returns the number of loaded steps. */
+    @Override
+    public int getStepCount() {
+        return steps == null ? 0 : steps.size();
+    }
+
+    /** Returns the index of the next step to show. */
+    @Override
+    public int getCurrentStep() {
+        return currentStep;
+    }
+
+    /**
+     * Sets the playback speed in steps per frame (0.1 to 10000).
+     */
+    public void setPlaybackSpeed(double stepsPerFrame) {
+        playback.setStepsPerFrame(stepsPerFrame);
     }
 
     /**
@@ -389,32 +592,18 @@ public class BellmanFordVisualizer extends StackPane {
             loadSteps(bfa.getSteps());
         }
 
-        // Restart timer if already playing
-        if (playTimer != null) {
-            playTimer.stop();
-        }
-
         // Reset to beginning when we already reached the end
         if (currentStep >= steps.size()) {
             currentStep = 0;
         }
-
-        playTimer = new PauseTransition(Duration.seconds(1));
-        playTimer.setOnFinished(e -> {
-            if (currentStep < steps.size()) {
-                nextStep();
-                play();
-            }
-        });
-        playTimer.play();
+        playback.start();
     }
 
     /**
      * Pauses the animation.
      */
     public void pause() {
-        if (playTimer != null)
-            playTimer.stop();
+        playback.stop();
     }
 
     /**
@@ -426,10 +615,15 @@ public class BellmanFordVisualizer extends StackPane {
 
     /** Draws the current state of the graph. */
     public void drawGraph() {
+        JfrEvents.Render event = new JfrEvents.Render();
+        event.begin();
         graphPane.getChildren().clear();
         vertexNodes.clear();
         edgeLines.clear();
         distanceLabels.clear();
+        highlightedLine = null;
+        vertexLabels.clear();
+        weightLabels.clear();
         List<Integer> vertices = new ArrayList<>(graph.getVertices());
         int n = vertices.size();
         double paneWidth = getWidth() > 0 ? getWidth() : 800;
@@ -463,18 +657,11 @@ public class BellmanFordVisualizer extends StackPane {
                 line.setStroke(Color.GRAY);
                 graphPane.getChildren().add(line);
                 edgeLines.put(e, line);
-                // Offset label perpendicular to edge
-                double midX = (fromPos[0] + toPos[0]) / 2;
-                double midY = (fromPos[1] + toPos[1]) / 2;
-                double dx = toPos[0] - fromPos[0];
-                double dy = toPos[1] - fromPos[1];
-                double len = Math.hypot(dx, dy);
-                double offset = 28;
-                double perpX = -dy / len * (offset / 2);
-                double perpY = dx / len * (offset / 2);
-                Text weightText = new Text(midX + perpX, midY + perpY, String.format("%.1f", e.weight));
+                Text weightText = new Text(String.format("%.1f", e.weight));
+                placeWeightLabel(weightText, fromPos, toPos);
                 weightText.setFill(Color.DARKBLUE);
                 graphPane.getChildren().add(weightText);
+                weightLabels.put(e, weightText);
             }
         }
         // Draw vertices
@@ -487,6 +674,7 @@ public class BellmanFordVisualizer extends StackPane {
             // Drag-and-drop handlers (robust: only update node and edges during drag)
             circle.setOnMousePressed(e -> {
                 isDragging = false;
+                stopAutoLayout();
                 circle.setUserData(
                         new double[] { e.getSceneX() - circle.getCenterX(), e.getSceneY() - circle.getCenterY() });
                 e.consume();
@@ -521,8 +709,113 @@ public class BellmanFordVisualizer extends StackPane {
             Text label = new Text(pos[0] - 5, pos[1] + 5, String.valueOf(v));
             label.setFill(Color.BLACK);
             graphPane.getChildren().add(label);
+            vertexLabels.put(v, label);
         }
         updateDistances(lastDistances);
+        commitRender(event, "drawGraph");
+    }
+
+    private void commitRender(JfrEvents.Render event, String operation) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.vertices = vertexNodes.size();
+            event.edges = edgeLines.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Offsets an edge weight label perpendicular to the edge midpoint.
+     */
+    private void placeWeightLabel(Text weightText, Double[] fromPos, Double[] toPos) {
+        double midX = (fromPos[0] + toPos[0]) / 2;
+        double midY = (fromPos[1] + toPos[1]) / 2;
+        double dx = toPos[0] - fromPos[0];
+        double dy = toPos[1] - fromPos[1];
+        double len = Math.hypot(dx, dy);
+        double offset = 28;
+        double perpX = len == 0 ? 0 : -dy / len * (offset / 2);
+        double perpY = len == 0 ? 0 : dx / len * (offset / 2);
+        weightText.setX(midX + perpX);
+        weightText.setY(midY + perpY);
+    }
+
+    /**
+     * Starts laying out the graph on a background thread. Positions are
+     * applied incrementally; user edits or dragging stop the layout.
+     */
+    public void startAutoLayout() {
+        stopAutoLayout();
+        double width = getWidth() > 0 ? getWidth() : 800;
+        double height = getHeight() > 0 ? getHeight() : 600;
+        ForceDirectedLayout started = new ForceDirectedLayout(graph, vertexPositions,
+                LEFT_MARGIN + 40, 40, width - 40, height - 40);
+        layout = started;
+        started.start(positions -> {
+            pendingLayout.set(positions);
+            // Coalesce: at most one render queued on the FX thread at a time
+            if (layoutRenderQueued.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    layoutRenderQueued.set(false);
+                    Map<Integer, Double[]> latest = pendingLayout.getAndSet(null);
+                    if (latest != null && layout == started) {
+                        applyLayout(latest);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops a running auto-layout, keeping the positions reached so far.
+     */
+    public void stopAutoLayout() {
+        if (layout != null) {
+            layout.stop();
+            layout = null;
+        }
+    }
+
+    /**
+     * Moves existing nodes to new positions without rebuilding the scene.
+     */
+    private void applyLayout(Map<Integer, Double[]> positions) {
+        vertexPositions.putAll(positions);
+        if (!vertexNodes.keySet().equals(positions.keySet())) {
+            drawGraph();
+            return;
+        }
+        for (Map.Entry<Integer, Double[]> entry : positions.entrySet()) {
+            int v = entry.getKey();
+            Double[] pos = entry.getValue();
+            Circle circle = vertexNodes.get(v);
+            circle.setCenterX(pos[0]);
+            circle.setCenterY(pos[1]);
+            Text label = vertexLabels.get(v);
+            if (label != null) {
+                label.setX(pos[0] - 5);
+                label.setY(pos[1] + 5);
+            }
+            Text distLabel = distanceLabels.get(v);
+            if (distLabel != null) {
+                distLabel.setX(pos[0] - 15);
+                distLabel.setY(pos[1] - 30);
+            }
+        }
+        for (Map.Entry<Graph.Edge, Line> entry : edgeLines.entrySet()) {
+            Graph.Edge e = entry.getKey();
+            Double[] fromPos = vertexPositions.get(e.from);
+            Double[] toPos = vertexPositions.get(e.to);
+            Line line = entry.getValue();
+            line.setStartX(fromPos[0]);
+            line.setStartY(fromPos[1]);
+            line.setEndX(toPos[0]);
+            line.setEndY(toPos[1]);
+            Text weightText = weightLabels.get(e);
+            if (weightText != null) {
+                placeWeightLabel(weightText, fromPos, toPos);
+            }
+        }
     }
 
     /**
@@ -530,16 +823,27 @@ public class BellmanFordVisualizer extends StackPane {
      * Highlights the edge and updates distance labels.
      */
     public void animateStep(BellmanFordAlgorithm.Step step) {
-        drawGraph();
+        JfrEvents.Render event = new JfrEvents.Render();
+        event.begin();
+        if (vertexNodes.size() != graph.getVertices().size()) {
+            drawGraph();
+        }
+        // Reset the previous highlight instead of redrawing the whole graph
+        if (highlightedLine != null) {
+            highlightedLine.setStroke(Color.GRAY);
+            highlightedLine.setStrokeWidth(1);
+        }
         // Highlight the edge being relaxed
         Line line = edgeLines.get(step.edge);
         if (line != null) {
             line.setStroke(step.relaxed ? Color.ORANGE : Color.RED);
             line.setStrokeWidth(4);
         }
-        // Update distances
-        updateDistances(step.distanceSnapshot);
-        lastDistances = Arrays.copyOf(step.distanceSnapshot, step.distanceSnapshot.length);
+        highlightedLine = line;
+        // Steps are immutable snapshots, so they can be shown without copying
+        lastDistances = step.distanceSnapshot;
+        updateDistances(lastDistances);
+        commitRender(event, "animateStep");
     }
 
     /**
@@ -552,33 +856,47 @@ public class BellmanFordVisualizer extends StackPane {
             int v = entry.getKey();
             Circle circle = entry.getValue();
             double d = v < distances.length ? distances[v] : Double.POSITIVE_INFINITY;
-            String label = (d == Double.POSITIVE_INFINITY) ? "∞" : String.format("%.1f", d);
-            Text distLabel = new Text(circle.getCenterX() - 15, circle.getCenterY() - 30, label);
-            distLabel.setFill(Color.FORESTGREEN);
-            graphPane.getChildren().add(distLabel);
-            distanceLabels.put(v, distLabel);
+            String label = formatDistance(d);
+            Text distLabel = distanceLabels.get(v);
+            if (distLabel == null) {
+                distLabel = new Text(circle.getCenterX() - 15, circle.getCenterY() - 30, label);
+                distLabel.setFill(Color.FORESTGREEN);
+                graphPane.getChildren().add(distLabel);
+                distanceLabels.put(v, distLabel);
+            } else {
+                distLabel.setText(label);
+            }
         }
 
         // Update the distance table
         updateDistanceTable(distances);
     }
 
+    private static String formatDistance(double d) {
+        if (d == Double.POSITIVE_INFINITY) {
+            return "∞";
+        }
+        return d == Double.NEGATIVE_INFINITY ? "-∞" : String.format("%.1f", d);
+    }
+
     /**
      * Updates the distance table with current distance values.
      */
     private void updateDistanceTable(double[] distances) {
-        tableData.clear();
+        List<DistanceRow> rows = new ArrayList<>();
         List<Integer> vertices = new ArrayList<>(graph.getVertices());
         vertices.sort(Integer::compareTo);
 
         for (int v : vertices) {
             double d = v < distances.length ? distances[v] : Double.POSITIVE_INFINITY;
-            String distanceStr = (d == Double.POSITIVE_INFINITY) ? "∞" : String.format("%.1f", d);
+            String distanceStr = formatDistance(d);
             String status = (v == sourceVertex) ? "Source"
-                    : (d == Double.POSITIVE_INFINITY) ? "Unreachable" : "Reachable";
+                    : (d == Double.POSITIVE_INFINITY) ? "Unreachable"
+                    : (d == Double.NEGATIVE_INFINITY) ? "Negative cycle" : "Reachable";
 
-            tableData.add(new DistanceRow(v, distanceStr, status));
+            rows.add(new DistanceRow(v, distanceStr, status));
         }
+        tableData.setAll(rows);
     }
 
     // TODO: Add methods for user interaction (add/remove vertex/edge, set source,
@@ -615,10 +933,12 @@ public class BellmanFordVisualizer extends StackPane {
      * Display final distances (no animation).
      */
     public void showFinalDistances(double[] distances) {
+        pause();
         this.steps = Collections.emptyList();
         this.currentStep = 0;
         this.lastDistances = Arrays.copyOf(distances, distances.length);
         drawGraph();
         updateDistances(lastDistances);
+        updateTraceDetail();
     }
 }
\ No newline at end of file
@@ -0,0 +1,370 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Bellman-Ford split along strongly connected components. The part of the
+ * graph reachable from the source is decomposed with an iterative Tarjan
+ * pass, and components are solved in topological order of the condensation:
+ * each pulls its incoming edges from earlier components, then runs
+ * Bellman-Ford over its own edges only. Single-vertex components without a
+ * self-loop need no rounds at all.
+ *
+ * Components on the same level of the condensation (same longest distance
+ * from the source's component) have no edges between them and are solved in
+ * parallel. A component with a negative cycle does not fail the run: its
+ * vertices, and every vertex reachable from them, get distance -infinity,
+ * and {@link Report#negativeComponents} lists the components with cycles.
+ */
+public class ComponentSolver {
+    /** How the graph decomposed and which components have negative cycles. */
+    public static final class Report {
+        public final int componentCount;
+        public final int nontrivialComponents;
+        public final int levels;
+        /** Vertices of each component containing a negative cycle, sorted. */
+        public final List<List<Integer>> negativeComponents;
+        public final long decompositionNanos;
+        public final long solveNanos;
+
+        Report(int componentCount, int nontrivialComponents, int levels, List<List<Integer>> negativeComponents,
+                long decompositionNanos, long solveNanos) {
+            this.componentCount = componentCount;
+            this.nontrivialComponents = nontrivialComponents;
+            this.levels = levels;
+            this.negativeComponents = Collections.unmodifiableList(negativeComponents);
+            this.decompositionNanos = decompositionNanos;
+            this.solveNanos = solveNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d components (%d non-trivial) on %d levels, %d with negative cycles, "
+                    + "decomposition %.3f ms, solve %.3f ms", componentCount, nontrivialComponents, levels,
+                    negativeComponents.size(), decompositionNanos / 1e6, solveNanos / 1e6);
+        }
+    }
+
+    /** Levels with fewer vertices than this are solved on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    private final GraphSnapshot snapshot;
+    private boolean parallel = true;
+    private volatile Report lastReport;
+
+    /** Creates a solver for the current state of {@code graph}. */
+    public ComponentSolver(Graph graph) {
+        this(GraphSnapshot.of(graph));
+    }
+
+    public ComponentSolver(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /** Turns parallel solving of independent components on or off (default on). */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /** Returns the report of the last {@link #solve}, or null. */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Computes shortest paths from {@code source}. Vertices affected by a
+     * negative cycle get -infinity and no predecessor; the result reports a
+     * negative cycle if any component has one.
+     *
+     * @throws IllegalArgumentException if {@code source} is not a vertex
+     */
+    public ShortestPathResult solve(int source) {
+        long start = System.nanoTime();
+        if (!snapshot.hasVertex(source)) {
+            throw new IllegalArgumentException("Unknown source vertex " + source);
+        }
+        int size = snapshot.arraySize;
+        double[] distance = new double[size];
+        int[] predecessor = new int[size];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+        distance[source] = 0;
+        Decomposition dec = new Decomposition(snapshot, source);
+        long decomposed = System.nanoTime();
+
+        boolean[] negative = new boolean[dec.count];
+        for (int level = 0; level < dec.levels; level++) {
+            int from = dec.levelOffsets[level];
+            int to = dec.levelOffsets[level + 1];
+            int work = 0;
+            for (int i = from; i < to; i++) {
+                int c = dec.byLevel[i];
+                work += dec.memberOffsets[c + 1] - dec.memberOffsets[c];
+            }
+            IntStream components = IntStream.range(from, to).map(i -> dec.byLevel[i]);
+            if (parallel && to - from > 1 && work >= PARALLEL_THRESHOLD) {
+                components = components.parallel();
+            }
+            // Each component writes only its own vertices and reads earlier levels
+            components.forEach(c -> negative[c] = solveComponent(dec, c, distance, predecessor));
+        }
+
+        List<List<Integer>> negativeComponents = new ArrayList<>();
+        int nontrivial = 0;
+        for (int c = 0; c < dec.count; c++) {
+            if (!dec.isTrivial(c)) {
+                nontrivial++;
+            }
+            if (negative[c]) {
+                List<Integer> members = new ArrayList<>();
+                for (int i = dec.memberOffsets[c]; i < dec.memberOffsets[c + 1]; i++) {
+                    members.add(dec.members[i]);
+                }
+                Collections.sort(members);
+                negativeComponents.add(members);
+            }
+        }
+        lastReport = new Report(dec.count, nontrivial, dec.levels, negativeComponents, decomposed - start,
+                System.nanoTime() - decomposed);
+        return new ShortestPathResult(source, distance, predecessor, negativeComponents.isEmpty());
+    }
+
+    /** Solves component {@code c}; returns true if it contains a negative cycle. */
+    private boolean solveComponent(Decomposition dec, int c, double[] distance, int[] predecessor) {
+        GraphSnapshot g = snapshot;
+        // Pull edges from earlier components; -infinity propagates through them
+        for (int i = dec.crossOffsets[c]; i < dec.crossOffsets[c + 1]; i++) {
+            int k = dec.crossEdges[i];
+            int u = g.edgeFrom[k];
+            int v = g.edgeTo[k];
+            if (distance[u] + g.edgeWeight[k] < distance[v]) {
+                distance[v] = distance[u] + g.edgeWeight[k];
+                predecessor[v] = u;
+            }
+        }
+        if (dec.isTrivial(c)) {
+            int v = dec.members[dec.memberOffsets[c]];
+            if (distance[v] == Double.NEGATIVE_INFINITY) {
+                predecessor[v] = -1; // no finite path to point along
+            }
+            return false;
+        }
+        int first = dec.memberOffsets[c];
+        int last = dec.memberOffsets[c + 1];
+        boolean fed = false;
+        for (int i = first; i < last; i++) {
+            fed |= distance[dec.members[i]] == Double.NEGATIVE_INFINITY;
+        }
+        boolean cycle;
+        if (fed) {
+            // Everything here is -infinity anyway; only check for a cycle of our own
+            double[] zero = new double[last - first];
+            cycle = !relaxRounds(dec, c, zero, null, true);
+        } else {
+            cycle = !relaxRounds(dec, c, distance, predecessor, false);
+        }
+        if (cycle || fed) {
+            for (int i = first; i < last; i++) {
+                distance[dec.members[i]] = Double.NEGATIVE_INFINITY;
+                predecessor[dec.members[i]] = -1;
+            }
+        }
+        return cycle;
+    }
+
+    /**
+     * Bellman-Ford rounds over the component's own edges, stopping early when
+     * a round changes nothing. With {@code local}, {@code d} is indexed by
+     * position in the component. Returns false if a negative cycle remains.
+     */
+    private boolean relaxRounds(Decomposition dec, int c, double[] d, int[] p, boolean local) {
+        GraphSnapshot g = snapshot;
+        int first = dec.memberOffsets[c];
+        int last = dec.memberOffsets[c + 1];
+        for (int round = 0; round < last - first; round++) {
+            boolean changed = false;
+            for (int i = first; i < last; i++) {
+                int u = dec.members[i];
+                double du = d[local ? i - first : u];
+                if (du == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                    int v = g.edgeTo[k];
+                    if (dec.component[v] != c) {
+                        continue;
+                    }
+                    int dv = local ? dec.position[v] : v;
+                    if (du + g.edgeWeight[k] < d[dv]) {
+                        d[dv] = du + g.edgeWeight[k];
+                        if (p != null) {
+                            p[v] = u;
+                        }
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return true;
+            }
+        }
+        return false; // still changing after |C| rounds
+    }
+
+    /**
+     * Strongly connected components of the part reachable from the source,
+     * numbered in topological order, with their incoming cross edges and
+     * levels in the condensation.
+     */
+    private static final class Decomposition {
+        final int[] component; // by vertex id; -1 if unreachable
+        final int[] position; // index within its component
+        int count;
+        int[] memberOffsets;
+        int[] members;
+        boolean[] selfLoop;
+        int[] crossOffsets;
+        int[] crossEdges; // snapshot edge indices into each component
+        int levels;
+        int[] levelOffsets;
+        int[] byLevel;
+
+        Decomposition(GraphSnapshot g, int source) {
+            int size = g.arraySize;
+            component = new int[size];
+            position = new int[size];
+            Arrays.fill(component, -1);
+            tarjan(g, source);
+            groupMembers(g);
+            crossEdgesAndLevels(g);
+        }
+
+        boolean isTrivial(int c) {
+            return memberOffsets[c + 1] - memberOffsets[c] == 1 && !selfLoop[c];
+        }
+
+        /** Iterative Tarjan; components complete sinks first, so ids are reversed at the end. */
+        private void tarjan(GraphSnapshot g, int source) {
+            int size = g.arraySize;
+            int[] index = new int[size]; // 0 = unvisited
+            int[] low = new int[size];
+            boolean[] onStack = new boolean[size];
+            int[] stack = new int[g.vertices.length];
+            int[] callVertex = new int[g.vertices.length];
+            int[] nextEdge = new int[g.vertices.length];
+            int sp = 0, depth = 0, counter = 0;
+
+            index[source] = low[source] = ++counter;
+            stack[sp++] = source;
+            onStack[source] = true;
+            callVertex[depth] = source;
+            nextEdge[depth++] = g.offsets[source];
+            while (depth > 0) {
+                int u = callVertex[depth - 1];
+                int k = nextEdge[depth - 1];
+                if (k < g.offsets[u + 1]) {
+                    nextEdge[depth - 1]++;
+                    int v = g.edgeTo[k];
+                    if (index[v] == 0) {
+                        index[v] = low[v] = ++counter;
+                        stack[sp++] = v;
+                        onStack[v] = true;
+                        callVertex[depth] = v;
+                        nextEdge[depth++] = g.offsets[v];
+                    } else if (onStack[v]) {
+                        low[u] = Math.min(low[u], index[v]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (low[u] == index[u]) {
+                    int v;
+                    do {
+                        v = stack[--sp];
+                        onStack[v] = false;
+                        component[v] = count;
+                    } while (v != u);
+                    count++;
+                }
+                if (depth > 0) {
+                    int parent = callVertex[depth - 1];
+                    low[parent] = Math.min(low[parent], low[u]);
+                }
+            }
+            for (int v = 0; v < size; v++) {
+                if (component[v] >= 0) {
+                    component[v] = count - 1 - component[v];
+                }
+            }
+        }
+
+        private void groupMembers(GraphSnapshot g) {
+            memberOffsets = new int[count + 1];
+            for (int v : g.vertices) {
+                if (component[v] >= 0) {
+                    memberOffsets[component[v] + 1]++;
+                }
+            }
+            for (int c = 0; c < count; c++) {
+                memberOffsets[c + 1] += memberOffsets[c];
+            }
+            members = new int[memberOffsets[count]];
+            int[] fill = Arrays.copyOf(memberOffsets, count);
+            selfLoop = new boolean[count];
+            for (int v : g.vertices) {
+                int c = component[v];
+                if (c >= 0) {
+                    position[v] = fill[c] - memberOffsets[c];
+                    members[fill[c]++] = v;
+                    for (int k = g.offsets[v]; k < g.offsets[v + 1]; k++) {
+                        selfLoop[c] |= g.edgeTo[k] == v;
+                    }
+                }
+            }
+        }
+
+        private void crossEdgesAndLevels(GraphSnapshot g) {
+            crossOffsets = new int[count + 1];
+            for (int u : members) {
+                for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                    int cv = component[g.edgeTo[k]];
+                    if (cv != component[u]) {
+                        crossOffsets[cv + 1]++;
+                    }
+                }
+            }
+            for (int c = 0; c < count; c++) {
+                crossOffsets[c + 1] += crossOffsets[c];
+            }
+            crossEdges = new int[crossOffsets[count]];
+            int[] fill = Arrays.copyOf(crossOffsets, count);
+            for (int u : members) {
+                for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                    int cv = component[g.edgeTo[k]];
+                    if (cv != component[u]) {
+                        crossEdges[fill[cv]++] = k;
+                    }
+                }
+            }
+            // Longest path from the source's component; edges only go to later ids
+            int[] level = new int[count];
+            for (int c = 0; c < count; c++) {
+                for (int i = crossOffsets[c]; i < crossOffsets[c + 1]; i++) {
+                    level[c] = Math.max(level[c], level[component[g.edgeFrom[crossEdges[i]]]] + 1);
+                }
+                levels = Math.max(levels, level[c] + 1);
+            }
+            levelOffsets = new int[levels + 1];
+            for (int c = 0; c < count; c++) {
+                levelOffsets[level[c] + 1]++;
+            }
+            for (int l = 0; l < levels; l++) {
+                levelOffsets[l + 1] += levelOffsets[l];
+            }
+            byLevel = new int[count];
+            int[] levelFill = Arrays.copyOf(levelOffsets, levels);
+            for (int c = 0; c < count; c++) {
+                byLevel[levelFill[level[c]]++] = c;
+            }
+        }
+    }
+}
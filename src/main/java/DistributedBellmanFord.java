@@ -0,0 +1,444 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Bulk-synchronous Bellman-Ford over {@link PartitionWorker} processes.
+ *
+ * Vertices are hash-partitioned ({@code v mod P}). Each worker reads its
+ * vertices and their outgoing edges directly from an edge file (see
+ * {@link #writeEdgeFile}) that every worker can read, so the graph never has
+ * to fit in one heap, the coordinator's included. In every superstep each
+ * worker relaxes its local edges once and replies with improved distances
+ * for remote vertices, already grouped by owning partition; the coordinator
+ * forwards those byte ranges unchanged to their owners for the next
+ * superstep, and the owners keep the minimum. A superstep with no change
+ * anywhere means convergence; still changing after |V| supersteps means a
+ * reachable negative cycle.
+ *
+ * Results stay on the workers: query them with {@link #getDistance},
+ * {@link #getDistances} or {@link #getPath} until {@link #close()}.
+ */
+public class DistributedBellmanFord implements Closeable {
+    private final Path edgeFile;
+    private final int source;
+    private final List<InetSocketAddress> workers;
+    private int timeoutMillis = 60_000;
+    private List<Connection> connections;
+    private long vertexCount;
+    private int supersteps;
+    private boolean solved;
+
+    /**
+     * Creates a coordinator for the graph in {@code edgeFile}, which must be
+     * readable under the same path by every worker.
+     */
+    public DistributedBellmanFord(Path edgeFile, int source, List<InetSocketAddress> workers) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        this.edgeFile = edgeFile.toAbsolutePath();
+        this.source = source;
+        this.workers = new ArrayList<>(workers);
+    }
+
+    /**
+     * Sets how long to wait for a worker to connect or answer (default 60 s),
+     * after which the call fails with a {@link SocketTimeoutException}. A
+     * superstep on a large partition must finish within this time.
+     */
+    public void setTimeout(int millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("timeout must be > 0");
+        }
+        this.timeoutMillis = millis;
+    }
+
+    /**
+     * Writes {@code graph} as an edge file for the workers. Graphs too large
+     * for one heap can be written by any tool following the layout in
+     * {@link PartitionWorker}: a header, then one 16-byte record per edge
+     * or isolated vertex.
+     */
+    public static void writeEdgeFile(Graph graph, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(PartitionWorker.EDGE_FILE_MAGIC);
+            out.writeInt(PartitionWorker.EDGE_FILE_VERSION);
+            for (int v : graph.getVertices()) {
+                out.writeInt(v);
+                out.writeInt(-1);
+                out.writeDouble(0);
+            }
+            for (Graph.Edge e : graph.getEdges()) {
+                out.writeInt(e.from);
+                out.writeInt(e.to);
+                out.writeDouble(e.weight);
+            }
+        }
+    }
+
+    /**
+     * Runs the distributed algorithm. Connects and has the workers load their
+     * partitions on the first call; later calls reuse them.
+     *
+     * @return true if no negative-weight cycles, false otherwise
+     */
+    public boolean run() throws IOException {
+        try {
+            if (connections == null) {
+                connect();
+            }
+            int parts = connections.size();
+            for (Connection c : connections) {
+                c.write(message(PartitionWorker.START));
+            }
+            // Boundary updates per partition, as byte ranges of worker replies
+            List<List<ByteBuffer>> inbox = new ArrayList<>();
+            int[] inboxCount = new int[parts];
+            for (int p = 0; p < parts; p++) {
+                inbox.add(new ArrayList<>());
+            }
+            ByteBuffer start = ByteBuffer.allocate(PartitionWorker.UPDATE_SIZE);
+            start.putInt(source).putDouble(0).putInt(-1).flip();
+            inbox.get(owner(source)).add(start);
+            inboxCount[owner(source)] = 1;
+
+            boolean converged = false;
+            supersteps = 0;
+            while (!converged && supersteps <= vertexCount) {
+                supersteps++;
+                for (int p = 0; p < parts; p++) {
+                    List<ByteBuffer> frame = inbox.get(p);
+                    ByteBuffer header = ByteBuffer.allocate(1 + 4);
+                    header.put(PartitionWorker.STEP).putInt(inboxCount[p]).flip();
+                    frame.add(0, header);
+                    connections.get(p).write(frame.toArray(new ByteBuffer[0]));
+                    frame.clear();
+                    inboxCount[p] = 0;
+                }
+                converged = true;
+                for (Connection c : connections) {
+                    ByteBuffer in = c.expect(PartitionWorker.STEP_DONE);
+                    if (in.get() != 0) {
+                        converged = false;
+                    }
+                    int offset = in.position() + 4 * parts;
+                    for (int p = 0; p < parts; p++) {
+                        int count = in.getInt();
+                        if (count > 0) {
+                            converged = false;
+                            ByteBuffer slice = in.duplicate();
+                            slice.limit(offset + count * PartitionWorker.UPDATE_SIZE).position(offset);
+                            inbox.get(p).add(slice);
+                            inboxCount[p] += count;
+                            offset += count * PartitionWorker.UPDATE_SIZE;
+                        }
+                    }
+                }
+            }
+            solved = true;
+            return converged;
+        } catch (IOException | RuntimeException e) {
+            // A worker failed or timed out; its partner sessions are in an unknown state
+            close();
+            throw e;
+        }
+    }
+
+    /** Opens a session with every worker and has each load its partition. */
+    private void connect() throws IOException {
+        connections = new ArrayList<>();
+        byte[] path = edgeFile.toString().getBytes(StandardCharsets.UTF_8);
+        for (int p = 0; p < workers.size(); p++) {
+            Connection c = Connection.open(workers.get(p), timeoutMillis);
+            connections.add(c);
+            ByteBuffer load = ByteBuffer.allocate(1 + 4 + 4 + path.length);
+            load.put(PartitionWorker.LOAD).putInt(p).putInt(workers.size()).put(path).flip();
+            c.write(load);
+        }
+        vertexCount = 0;
+        for (Connection c : connections) {
+            ByteBuffer in = c.expect(PartitionWorker.LOADED);
+            vertexCount += in.getInt();
+        }
+    }
+
+    /** Returns the distance of {@code v} from the source (+infinity if unreachable). */
+    public double getDistance(int v) throws IOException {
+        double[] distance = new double[1];
+        query(new int[] { v }, distance, new int[1]);
+        return distance[0];
+    }
+
+    /** Returns the predecessor of {@code v} on its shortest path, or -1. */
+    public int getPredecessor(int v) throws IOException {
+        int[] predecessor = new int[1];
+        query(new int[] { v }, new double[1], predecessor);
+        return predecessor[0];
+    }
+
+    /** Returns the distances of {@code vertices}, with one request per worker. */
+    public double[] getDistances(int... vertices) throws IOException {
+        double[] distance = new double[vertices.length];
+        query(vertices, distance, new int[vertices.length]);
+        return distance;
+    }
+
+    /** Returns the predecessors of {@code vertices}, with one request per worker. */
+    public int[] getPredecessors(int... vertices) throws IOException {
+        int[] predecessor = new int[vertices.length];
+        query(vertices, new double[vertices.length], predecessor);
+        return predecessor;
+    }
+
+    /**
+     * Returns the shortest path from the source to {@code v}, following
+     * predecessors one query at a time; empty if unreachable or if the
+     * predecessors loop (negative cycle).
+     */
+    public List<Integer> getPath(int v) throws IOException {
+        if (getDistance(v) == Double.POSITIVE_INFINITY) {
+            return Collections.emptyList();
+        }
+        LinkedList<Integer> path = new LinkedList<>();
+        for (int u = v; u != -1; u = getPredecessor(u)) {
+            path.addFirst(u);
+            if (path.size() > vertexCount) {
+                return Collections.emptyList();
+            }
+        }
+        return path.getFirst() == source ? path : Collections.emptyList();
+    }
+
+    private void query(int[] vertices, double[] distance, int[] predecessor) throws IOException {
+        if (!solved) {
+            throw new IllegalStateException("run() has not completed");
+        }
+        int parts = connections.size();
+        int[] counts = new int[parts];
+        for (int v : vertices) {
+            counts[owner(v)]++;
+        }
+        try {
+            for (int p = 0; p < parts; p++) {
+                ByteBuffer out = ByteBuffer.allocate(1 + 4 + 4 * counts[p]);
+                out.put(PartitionWorker.QUERY).putInt(counts[p]);
+                for (int v : vertices) {
+                    if (owner(v) == p) {
+                        out.putInt(v);
+                    }
+                }
+                out.flip();
+                connections.get(p).write(out);
+            }
+            ByteBuffer[] replies = new ByteBuffer[parts];
+            for (int p = 0; p < parts; p++) {
+                replies[p] = connections.get(p).expect(PartitionWorker.RESULT);
+                replies[p].getInt();
+            }
+            // Replies come in request order per worker
+            for (int i = 0; i < vertices.length; i++) {
+                ByteBuffer in = replies[owner(vertices[i])];
+                distance[i] = in.getDouble();
+                predecessor[i] = in.getInt();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private static ByteBuffer message(byte type) {
+        ByteBuffer out = ByteBuffer.allocate(1).put(type);
+        out.flip();
+        return out;
+    }
+
+    private int owner(int v) {
+        return Math.floorMod(v, workers.size());
+    }
+
+    /** Returns the number of supersteps the last run took. */
+    public int getSupersteps() {
+        return supersteps;
+    }
+
+    /** Returns the number of vertices the workers loaded. */
+    public long getVertexCount() {
+        return vertexCount;
+    }
+
+    /** Ends the worker sessions; results are no longer available afterwards. */
+    @Override
+    public void close() {
+        if (connections == null) {
+            return;
+        }
+        for (Connection c : connections) {
+            try {
+                c.write(message(PartitionWorker.END));
+            } catch (IOException e) {
+                // Closing anyway
+            }
+            c.close();
+        }
+        connections = null;
+        solved = false;
+    }
+
+    /**
+     * A framed connection to one worker in which every wait for the network
+     * is bounded by the timeout.
+     */
+    private static final class Connection implements Closeable {
+        private final InetSocketAddress address;
+        private final SocketChannel channel;
+        private final Selector selector;
+        private final SelectionKey key;
+        private final int timeoutMillis;
+
+        private Connection(InetSocketAddress address, SocketChannel channel, Selector selector, int timeoutMillis)
+                throws IOException {
+            this.address = address;
+            this.channel = channel;
+            this.selector = selector;
+            this.key = channel.register(selector, 0);
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        static Connection open(InetSocketAddress address, int timeoutMillis) throws IOException {
+            SocketChannel channel = SocketChannel.open();
+            Selector selector = null;
+            try {
+                channel.socket().connect(address, timeoutMillis);
+                channel.configureBlocking(false);
+                selector = Selector.open();
+                return new Connection(address, channel, selector, timeoutMillis);
+            } catch (IOException e) {
+                if (selector != null) {
+                    selector.close();
+                }
+                channel.close();
+                throw e;
+            }
+        }
+
+        /** Writes one frame made of {@code payload}. */
+        void write(ByteBuffer... payload) throws IOException {
+            long length = 0;
+            for (ByteBuffer b : payload) {
+                length += b.remaining();
+            }
+            ByteBuffer[] frame = new ByteBuffer[payload.length + 1];
+            frame[0] = ByteBuffer.allocate(4).putInt((int) length);
+            frame[0].flip();
+            System.arraycopy(payload, 0, frame, 1, payload.length);
+            long remaining = length + 4;
+            while (remaining > 0) {
+                long written = channel.write(frame);
+                remaining -= written;
+                if (written == 0) {
+                    await(SelectionKey.OP_WRITE);
+                }
+            }
+        }
+
+        /** Reads one frame and checks its message type. */
+        ByteBuffer expect(byte type) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            readFully(header);
+            ByteBuffer in = ByteBuffer.allocate(header.getInt(0));
+            readFully(in);
+            in.flip();
+            byte got = in.get();
+            if (got != type) {
+                throw new IOException("Expected message " + type + " from " + address + " but got " + got);
+            }
+            return in;
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("Worker " + address + " closed the connection");
+                } else if (read == 0) {
+                    await(SelectionKey.OP_READ);
+                }
+            }
+        }
+
+        private void await(int op) throws IOException {
+            key.interestOps(op);
+            int ready = selector.select(timeoutMillis);
+            selector.selectedKeys().clear();
+            key.interestOps(0);
+            if (ready == 0) {
+                throw new SocketTimeoutException("Worker " + address + " did not respond within " + timeoutMillis
+                        + " ms");
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                selector.close();
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close connection to " + address + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Worker processes started on this machine, for testing and single-host
+     * runs. Closing destroys the processes.
+     */
+    public static class LocalWorkers implements Closeable {
+        private final List<Process> processes = new ArrayList<>();
+        private final List<InetSocketAddress> addresses = new ArrayList<>();
+
+        /** Starts {@code count} worker JVMs using this JVM's class path. */
+        public static LocalWorkers start(int count) throws IOException {
+            LocalWorkers local = new LocalWorkers();
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            String classPath = System.getProperty("java.class.path");
+            try {
+                for (int i = 0; i < count; i++) {
+                    Process process = new ProcessBuilder(java, "-cp", classPath, "PartitionWorker", "0")
+                            .redirectError(ProcessBuilder.Redirect.INHERIT)
+                            .start();
+                    local.processes.add(process);
+                    BufferedReader out = new BufferedReader(
+                            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                    String line = out.readLine();
+                    if (line == null || !line.startsWith("PORT ")) {
+                        throw new IOException("Worker did not report its port: " + line);
+                    }
+                    local.addresses.add(new InetSocketAddress("localhost", Integer.parseInt(line.substring(5))));
+                }
+            } catch (IOException | RuntimeException e) {
+                local.close();
+                throw e;
+            }
+            return local;
+        }
+
+        /** Returns the worker addresses. */
+        public List<InetSocketAddress> getAddresses() {
+            return Collections.unmodifiableList(addresses);
+        }
+
+        @Override
+        public void close() {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+}
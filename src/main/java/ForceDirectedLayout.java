@@ -0,0 +1,366 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Force-directed (Fruchterman-Reingold) layout on a background thread.
+ * Repulsion between all vertices is approximated with a Barnes-Hut quadtree,
+ * so each iteration costs O(n log n) instead of O(n^2). Positions are
+ * published periodically, scaled to fit the given bounds.
+ */
+public class ForceDirectedLayout {
+    private static final double THETA = 0.8; // Barnes-Hut opening criterion
+    private static final int MAX_DEPTH = 40; // coincident points share a leaf
+    private static final int MAX_ITERATIONS = 500;
+    private static final long PUBLISH_INTERVAL_NANOS = 50_000_000L;
+
+    private final int[] ids;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final double[] x;
+    private final double[] y;
+    private final double[] dx;
+    private final double[] dy;
+    private final double minX, minY, maxX, maxY;
+    private final double k; // ideal edge length
+    private double temperature;
+    private int iteration;
+    private volatile boolean running;
+    private Thread thread;
+
+    // Array-backed quadtree, rebuilt every iteration
+    private int nodeCount;
+    private double[] nodeX = new double[64], nodeY = new double[64], nodeSize = new double[64];
+    private double[] massX = new double[64], massY = new double[64];
+    private int[] mass = new int[64];
+    private int[] body = new int[64];
+    private int[] parent = new int[64];
+    private int[] onPath = new int[64]; // last vertex whose leaf lies below the node
+    private int[] children = new int[256];
+    private final int[] leafOf;
+    private int[] stack = new int[4 * MAX_DEPTH + 8];
+
+    /**
+     * Captures the graph and any existing positions (which seed the layout)
+     * and lays vertices out inside the given rectangle.
+     */
+    public ForceDirectedLayout(Graph graph, Map<Integer, Double[]> initial,
+            double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        List<Integer> vertices = new ArrayList<>(graph.getVertices());
+        Collections.sort(vertices);
+        int n = vertices.size();
+        ids = new int[n];
+        Map<Integer, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ids[i] = vertices.get(i);
+            index.put(ids[i], i);
+        }
+        List<Graph.Edge> edges = graph.getEdges();
+        edgeFrom = new int[edges.size()];
+        edgeTo = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            edgeFrom[i] = index.get(edges.get(i).from);
+            edgeTo[i] = index.get(edges.get(i).to);
+        }
+        x = new double[n];
+        y = new double[n];
+        dx = new double[n];
+        dy = new double[n];
+        leafOf = new int[n];
+        // Work in a square whose area gives roughly unit spacing per vertex
+        double side = Math.max(1, Math.sqrt(n)) * 100;
+        k = side / Math.max(1, Math.sqrt(n));
+        Random rand = new Random(42);
+        for (int i = 0; i < n; i++) {
+            Double[] pos = initial.get(ids[i]);
+            if (pos != null && maxX > minX && maxY > minY) {
+                x[i] = (pos[0] - minX) / (maxX - minX) * side;
+                y[i] = (pos[1] - minY) / (maxY - minY) * side;
+            } else {
+                x[i] = rand.nextDouble() * side;
+                y[i] = rand.nextDouble() * side;
+            }
+        }
+        temperature = side / 10;
+    }
+
+    /**
+     * Starts iterating on a daemon thread. {@code listener} is called from that
+     * thread with fitted positions, at most every 50 ms and once at the end.
+     */
+    public synchronized void start(Consumer<Map<Integer, Double[]>> listener) {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(() -> {
+            long lastPublish = System.nanoTime();
+            while (running && step()) {
+                long now = System.nanoTime();
+                if (now - lastPublish >= PUBLISH_INTERVAL_NANOS) {
+                    listener.accept(getPositions());
+                    lastPublish = now;
+                }
+            }
+            if (running) {
+                listener.accept(getPositions());
+            }
+            running = false;
+        }, "force-directed-layout");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops the layout thread; no further positions are published. */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /** Returns true while the layout thread is iterating. */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Runs one iteration.
+     *
+     * @return false once the layout has cooled down
+     */
+    public boolean step() {
+        int n = ids.length;
+        if (n == 0 || iteration >= MAX_ITERATIONS || temperature < 0.01 * k) {
+            return false;
+        }
+        buildTree();
+        double k2 = k * k;
+        for (int i = 0; i < n; i++) {
+            dx[i] = 0;
+            dy[i] = 0;
+            repel(i, k2);
+        }
+        for (int e = 0; e < edgeFrom.length; e++) {
+            int a = edgeFrom[e], b = edgeTo[e];
+            if (a == b) {
+                continue;
+            }
+            double ex = x[a] - x[b], ey = y[a] - y[b];
+            double d = Math.max(1e-6, Math.hypot(ex, ey));
+            double f = d / k; // (d^2 / k) / d
+            dx[a] -= ex * f;
+            dy[a] -= ey * f;
+            dx[b] += ex * f;
+            dy[b] += ey * f;
+        }
+        for (int i = 0; i < n; i++) {
+            double len = Math.hypot(dx[i], dy[i]);
+            if (len > 0) {
+                double limit = Math.min(len, temperature) / len;
+                x[i] += dx[i] * limit;
+                y[i] += dy[i] * limit;
+            }
+        }
+        temperature *= 0.98;
+        iteration++;
+        return true;
+    }
+
+    /** Returns the current positions scaled into the layout bounds. */
+    public Map<Integer, Double[]> getPositions() {
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < ids.length; i++) {
+            loX = Math.min(loX, x[i]);
+            hiX = Math.max(hiX, x[i]);
+            loY = Math.min(loY, y[i]);
+            hiY = Math.max(hiY, y[i]);
+        }
+        double scale = Math.min((maxX - minX) / Math.max(1e-9, hiX - loX),
+                (maxY - minY) / Math.max(1e-9, hiY - loY));
+        Map<Integer, Double[]> positions = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            double px = ids.length == 1 ? (minX + maxX) / 2 : minX + (x[i] - loX) * scale;
+            double py = ids.length == 1 ? (minY + maxY) / 2 : minY + (y[i] - loY) * scale;
+            positions.put(ids[i], new Double[] { px, py });
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the repulsive force on every vertex as {@code x0, y0, x1, ...},
+     * from the quadtree or, if {@code exact}, summed over all pairs. For tests.
+     */
+    double[] repulsion(boolean exact) {
+        int n = ids.length;
+        buildTree();
+        double k2 = k * k;
+        double[] force = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            dx[i] = 0;
+            dy[i] = 0;
+            if (!exact) {
+                repel(i, k2);
+            } else {
+                for (int j = 0; j < n; j++) {
+                    if (j != i) {
+                        push(i, x[j] - x[i], y[j] - y[i], 1, k2);
+                    }
+                }
+            }
+            force[2 * i] = dx[i];
+            force[2 * i + 1] = dy[i];
+        }
+        return force;
+    }
+
+    /** Accumulates the approximate repulsive force on vertex {@code i}. */
+    private void repel(int i, double k2) {
+        // Mark the nodes holding i, so its own mass is left out of them
+        for (int node = leafOf[i]; node >= 0; node = parent[node]) {
+            onPath[node] = i;
+        }
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int m = mass[node];
+            double sumX = massX[node], sumY = massY[node];
+            if (onPath[node] == i) {
+                m--;
+                sumX -= x[i];
+                sumY -= y[i];
+            }
+            if (m == 0) {
+                continue;
+            }
+            double cx = sumX / m - x[i];
+            double cy = sumY / m - y[i];
+            double d2 = cx * cx + cy * cy;
+            boolean leaf = children[4 * node] < 0 && children[4 * node + 1] < 0
+                    && children[4 * node + 2] < 0 && children[4 * node + 3] < 0;
+            if (leaf || nodeSize[node] * nodeSize[node] < THETA * THETA * d2) {
+                push(i, cx, cy, m, k2);
+            } else {
+                for (int q = 0; q < 4; q++) {
+                    int child = children[4 * node + q];
+                    if (child >= 0) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        stack[top++] = child;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Adds the repulsion of {@code m} vertices at offset (cx, cy) from vertex {@code i}. */
+    private void push(int i, double cx, double cy, int m, double k2) {
+        double d2 = cx * cx + cy * cy;
+        if (d2 < 1e-12) {
+            // Coincident points: push apart in a deterministic direction
+            cx = 1e-3 * ((i & 1) == 0 ? 1 : -1);
+            cy = 1e-3 * ((i & 2) == 0 ? 1 : -1);
+            d2 = cx * cx + cy * cy;
+        }
+        double f = m * k2 / d2; // (k^2 / d) / d
+        dx[i] -= cx * f;
+        dy[i] -= cy * f;
+    }
+
+    private void buildTree() {
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < ids.length; i++) {
+            loX = Math.min(loX, x[i]);
+            loY = Math.min(loY, y[i]);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            hi = Math.max(hi, Math.max(x[i] - loX, y[i] - loY));
+        }
+        nodeCount = 0;
+        newNode(-1, loX, loY, Math.max(hi, 1e-6) * 1.0001);
+        for (int i = 0; i < ids.length; i++) {
+            insert(i);
+        }
+    }
+
+    private int newNode(int up, double nx, double ny, double size) {
+        if (nodeCount == mass.length) {
+            int cap = nodeCount * 2;
+            nodeX = Arrays.copyOf(nodeX, cap);
+            nodeY = Arrays.copyOf(nodeY, cap);
+            nodeSize = Arrays.copyOf(nodeSize, cap);
+            massX = Arrays.copyOf(massX, cap);
+            massY = Arrays.copyOf(massY, cap);
+            mass = Arrays.copyOf(mass, cap);
+            body = Arrays.copyOf(body, cap);
+            parent = Arrays.copyOf(parent, cap);
+            onPath = Arrays.copyOf(onPath, cap);
+            children = Arrays.copyOf(children, cap * 4);
+        }
+        int node = nodeCount++;
+        nodeX[node] = nx;
+        nodeY[node] = ny;
+        nodeSize[node] = size;
+        massX[node] = 0;
+        massY[node] = 0;
+        mass[node] = 0;
+        body[node] = -1;
+        parent[node] = up;
+        onPath[node] = -1;
+        Arrays.fill(children, 4 * node, 4 * node + 4, -1);
+        return node;
+    }
+
+    private void insert(int i) {
+        int node = 0;
+        for (int depth = 0;; depth++) {
+            boolean leaf = children[4 * node] < 0 && children[4 * node + 1] < 0
+                    && children[4 * node + 2] < 0 && children[4 * node + 3] < 0;
+            if (leaf && (mass[node] == 0 || depth >= MAX_DEPTH)) {
+                if (mass[node] == 0) {
+                    body[node] = i;
+                }
+                addMass(node, x[i], y[i], 1);
+                leafOf[i] = node;
+                return;
+            }
+            if (leaf) {
+                // Push the resident body one level down before descending
+                int resident = body[node];
+                body[node] = -1;
+                int child = childFor(node, x[resident], y[resident]);
+                body[child] = resident;
+                addMass(child, x[resident], y[resident], 1);
+                leafOf[resident] = child;
+            }
+            addMass(node, x[i], y[i], 1);
+            node = childFor(node, x[i], y[i]);
+        }
+    }
+
+    private void addMass(int node, double px, double py, int count) {
+        massX[node] += px * count;
+        massY[node] += py * count;
+        mass[node] += count;
+    }
+
+    private int childFor(int node, double px, double py) {
+        double half = nodeSize[node] / 2;
+        int q = (px >= nodeX[node] + half ? 1 : 0) + (py >= nodeY[node] + half ? 2 : 0);
+        int child = children[4 * node + q];
+        if (child < 0) {
+            child = newNode(node, nodeX[node] + ((q & 1) != 0 ? half : 0),
+                    nodeY[node] + ((q & 2) != 0 ? half : 0), half);
+            children[4 * node + q] = child;
+        }
+        return child;
+    }
+}
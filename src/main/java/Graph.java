@@ -1,4 +1,6 @@
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Represents a directed, weighted graph for the Bellman-Ford algorithm.
@@ -21,42 +23,127 @@ public class Graph {
     private final Map<Integer, List<Edge>> adjList = new HashMap<>();
     // Set of all vertices
     private final Set<Integer> vertices = new HashSet<>();
+    // Notified of each change once the call making it returns, on the mutating thread
+    private final List<Consumer<GraphMutation>> listeners = new CopyOnWriteArrayList<>();
+    private final List<GraphMutation> unpublished = new ArrayList<>();
+    // Run before each mutating call; may throw to reject it
+    private final List<Runnable> guards = new CopyOnWriteArrayList<>();
+    // Bumped on every effective change
+    private long version;
+
+    /**
+     * Registers a listener called for every change that actually modifies
+     * the graph (adding an existing vertex or removing a missing edge is not
+     * reported). Changes are reported in order once the call that made them
+     * is complete, so e.g. the vertices added by {@link #addEdge} are
+     * reported when the edge is already in place.
+     */
+    public void addMutationListener(Consumer<GraphMutation> listener) {
+        listeners.add(listener);
+    }
+
+    /** Unregisters a listener added with {@link #addMutationListener}. */
+    public void removeMutationListener(Consumer<GraphMutation> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Registers a check run at the start of every mutating call, before the
+     * graph changes. A guard that throws rejects the call and leaves the
+     * graph untouched, e.g. a journal that can no longer record changes.
+     */
+    public void addMutationGuard(Runnable guard) {
+        guards.add(guard);
+    }
+
+    /** Unregisters a guard added with {@link #addMutationGuard}. */
+    public void removeMutationGuard(Runnable guard) {
+        guards.remove(guard);
+    }
+
+    /**
+     * Returns a counter that changes whenever the graph does, for caches of
+     * derived data. Writes to {@link Edge#weight} made outside this class are
+     * not counted.
+     */
+    public long getVersion() {
+        return version;
+    }
 
     /** Adds a vertex to the graph. */
     public void addVertex(int v) {
-        vertices.add(v);
-        adjList.putIfAbsent(v, new ArrayList<>());
+        checkGuards();
+        insertVertex(v);
+        publish();
     }
 
     /** Removes a vertex and all its edges. */
     public void removeVertex(int v) {
-        vertices.remove(v);
+        checkGuards();
+        if (!vertices.remove(v)) {
+            return;
+        }
         adjList.remove(v);
         for (List<Edge> edges : adjList.values()) {
             edges.removeIf(e -> e.to == v);
         }
+        fire(GraphMutation.Type.REMOVE_VERTEX, v, -1, 0);
+        publish();
     }
 
     /** Adds or updates an edge. */
     public void addEdge(int from, int to, double weight) {
-        addVertex(from);
-        addVertex(to);
+        checkGuards();
+        insertVertex(from);
+        insertVertex(to);
         List<Edge> edges = adjList.get(from);
+        Edge existing = null;
         for (Edge e : edges) {
             if (e.to == to) {
-                e.weight = weight;
-                return;
+                existing = e;
+                break;
             }
         }
-        edges.add(new Edge(from, to, weight));
+        if (existing != null) {
+            existing.weight = weight;
+        } else {
+            edges.add(new Edge(from, to, weight));
+        }
+        fire(GraphMutation.Type.ADD_EDGE, from, to, weight);
+        publish();
+    }
+
+    /**
+     * Adds an edge without checking for an existing one. For bulk builders
+     * that guarantee each (from, to) pair is added once.
+     */
+    public void appendEdge(int from, int to, double weight) {
+        checkGuards();
+        insertVertex(from);
+        insertVertex(to);
+        adjList.get(from).add(new Edge(from, to, weight));
+        fire(GraphMutation.Type.APPEND_EDGE, from, to, weight);
+        publish();
     }
 
     /** Removes an edge. */
     public void removeEdge(int from, int to) {
+        checkGuards();
         List<Edge> edges = adjList.get(from);
-        if (edges != null) {
-            edges.removeIf(e -> e.to == to);
+        if (edges != null && edges.removeIf(e -> e.to == to)) {
+            fire(GraphMutation.Type.REMOVE_EDGE, from, to, 0);
+        }
+        publish();
+    }
+
+    /** Removes all edges, keeping the vertices. */
+    public void clearEdges() {
+        checkGuards();
+        for (List<Edge> edges : adjList.values()) {
+            edges.clear();
         }
+        fire(GraphMutation.Type.CLEAR_EDGES, -1, -1, 0);
+        publish();
     }
 
     /** Returns all vertices. */
@@ -77,4 +164,40 @@ public class Graph {
     public List<Edge> getOutgoingEdges(int v) {
         return adjList.getOrDefault(v, Collections.emptyList());
     }
+
+    /** Adds a vertex without running guards or publishing; for mutating calls. */
+    private void insertVertex(int v) {
+        if (vertices.add(v)) {
+            adjList.putIfAbsent(v, new ArrayList<>());
+            fire(GraphMutation.Type.ADD_VERTEX, v, -1, 0);
+        }
+    }
+
+    private void checkGuards() {
+        for (Runnable guard : guards) {
+            guard.run();
+        }
+    }
+
+    /** Records a change for {@link #publish()}. */
+    private void fire(GraphMutation.Type type, int from, int to, double weight) {
+        version++;
+        if (!listeners.isEmpty()) {
+            unpublished.add(new GraphMutation(type, from, to, weight));
+        }
+    }
+
+    /** Reports the changes of the call that is returning to the listeners. */
+    private void publish() {
+        if (unpublished.isEmpty()) {
+            return;
+        }
+        List<GraphMutation> changes = new ArrayList<>(unpublished);
+        unpublished.clear();
+        for (GraphMutation mutation : changes) {
+            for (Consumer<GraphMutation> listener : listeners) {
+                listener.accept(mutation);
+            }
+        }
+    }
 }
\ No newline at end of file
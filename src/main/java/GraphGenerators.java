@@ -0,0 +1,209 @@
+import java.util.*;
+
+/**
+ * Seeded bulk graph generators for tests, benchmarks and the UI.
+ * The same parameters and seed always produce the same graph. Edges are
+ * generated without duplicates and added with {@link Graph#appendEdge}, so
+ * building is linear in the number of edges.
+ */
+public final class GraphGenerators {
+    private GraphGenerators() {
+    }
+
+    /**
+     * Random directed graph on vertices 0..n-1 with exactly {@code m} distinct
+     * edges (no self-loops) and weights uniform in [minWeight, maxWeight).
+     */
+    public static Graph randomSparse(int n, int m, long seed, double minWeight, double maxWeight) {
+        if (n < 0 || m < 0 || (long) m > (long) n * (n - 1)) {
+            throw new IllegalArgumentException("Cannot place " + m + " edges on " + n + " vertices");
+        }
+        SplittableRandom rand = new SplittableRandom(seed);
+        // Floyd's sampling: m distinct edge numbers in m draws, even near n(n - 1)
+        long total = (long) n * (n - 1);
+        Set<Long> chosen = new HashSet<>(Math.max(16, m * 2));
+        for (long j = total - m; j < total; j++) {
+            long t = rand.nextLong(j + 1);
+            chosen.add(chosen.contains(t) ? j : t);
+        }
+        long[] keys = new long[m];
+        int i = 0;
+        for (long key : chosen) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys); // HashSet order is not part of the seed's contract
+        Graph g = vertices(n);
+        for (long key : keys) {
+            int from = (int) (key / (n - 1));
+            int to = (int) (key % (n - 1));
+            if (to >= from) {
+                to++; // skip self-loops without rejection
+            }
+            g.appendEdge(from, to, weight(rand, minWeight, maxWeight));
+        }
+        return g;
+    }
+
+    /**
+     * Road-like grid: vertex {@code r * cols + c} is connected in both
+     * directions to its right and lower neighbours, each direction with its
+     * own random weight.
+     */
+    public static Graph grid(int rows, int cols, long seed, double minWeight, double maxWeight) {
+        if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot build a " + rows + " x " + cols + " grid");
+        }
+        SplittableRandom rand = new SplittableRandom(seed);
+        Graph g = vertices(rows * cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int v = r * cols + c;
+                if (c + 1 < cols) {
+                    g.appendEdge(v, v + 1, weight(rand, minWeight, maxWeight));
+                    g.appendEdge(v + 1, v, weight(rand, minWeight, maxWeight));
+                }
+                if (r + 1 < rows) {
+                    g.appendEdge(v, v + cols, weight(rand, minWeight, maxWeight));
+                    g.appendEdge(v + cols, v, weight(rand, minWeight, maxWeight));
+                }
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Scale-free graph (Barabasi-Albert preferential attachment): each new
+     * vertex links to {@code edgesPerVertex} distinct earlier vertices chosen
+     * with probability proportional to their degree.
+     */
+    public static Graph scaleFree(int n, int edgesPerVertex, long seed, double minWeight, double maxWeight) {
+        if (edgesPerVertex < 1 || n <= edgesPerVertex) {
+            throw new IllegalArgumentException("Need n > edgesPerVertex >= 1");
+        }
+        SplittableRandom rand = new SplittableRandom(seed);
+        Graph g = vertices(n);
+        // Every edge endpoint appears once, so sampling it is degree-proportional
+        int[] endpoints = new int[2 * edgesPerVertex * n];
+        int filled = 0;
+        int seedSize = edgesPerVertex + 1;
+        for (int v = 0; v < seedSize; v++) {
+            for (int u = 0; u < seedSize; u++) {
+                if (u != v && filled + 2 <= endpoints.length) {
+                    g.appendEdge(v, u, weight(rand, minWeight, maxWeight));
+                    endpoints[filled++] = v;
+                    endpoints[filled++] = u;
+                }
+            }
+        }
+        int[] chosen = new int[edgesPerVertex];
+        for (int v = seedSize; v < n; v++) {
+            int count = 0;
+            while (count < edgesPerVertex) {
+                int target = endpoints[rand.nextInt(filled)];
+                boolean duplicate = false;
+                for (int i = 0; i < count; i++) {
+                    duplicate |= chosen[i] == target;
+                }
+                if (!duplicate) {
+                    chosen[count++] = target;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                g.appendEdge(v, chosen[i], weight(rand, minWeight, maxWeight));
+                if (filled + 2 <= endpoints.length) {
+                    endpoints[filled++] = v;
+                    endpoints[filled++] = chosen[i];
+                }
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Layered DAG: {@code layers} layers of {@code width} vertices, vertex
+     * {@code layer * width + i}, each with {@code fanOut} distinct edges into
+     * the next layer. Negative weights cannot form cycles here.
+     */
+    public static Graph layeredDag(int layers, int width, int fanOut, long seed,
+            double minWeight, double maxWeight) {
+        if (layers < 1 || width < 1 || (long) layers * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot build " + layers + " layers of " + width + " vertices");
+        }
+        if (fanOut < 0 || fanOut > width) {
+            throw new IllegalArgumentException("fanOut must be between 0 and width");
+        }
+        SplittableRandom rand = new SplittableRandom(seed);
+        Graph g = vertices(layers * width);
+        int[] targets = new int[width];
+        for (int i = 0; i < width; i++) {
+            targets[i] = i;
+        }
+        for (int layer = 0; layer + 1 < layers; layer++) {
+            int next = (layer + 1) * width;
+            for (int i = 0; i < width; i++) {
+                // Partial Fisher-Yates picks fanOut distinct targets
+                for (int j = 0; j < fanOut; j++) {
+                    int k = j + rand.nextInt(width - j);
+                    int t = targets[j];
+                    targets[j] = targets[k];
+                    targets[k] = t;
+                    g.appendEdge(layer * width + i, next + targets[j], weight(rand, minWeight, maxWeight));
+                }
+            }
+        }
+        return g;
+    }
+
+    /**
+     * Plants a cycle through {@code length} distinct random vertices of
+     * {@code g} whose edge weights sum to {@code totalWeight} (negative for a
+     * negative cycle). Existing edges along the cycle are overwritten.
+     *
+     * @return the cycle's vertices in order
+     */
+    public static List<Integer> plantCycle(Graph g, int length, double totalWeight, long seed) {
+        List<Integer> vertices = new ArrayList<>(g.getVertices());
+        if (length < 1 || length > vertices.size()) {
+            throw new IllegalArgumentException("Cycle length must be between 1 and " + vertices.size());
+        }
+        Collections.sort(vertices);
+        // Partial Fisher-Yates picks length distinct vertices
+        SplittableRandom rand = new SplittableRandom(seed);
+        for (int j = 0; j < length; j++) {
+            Collections.swap(vertices, j, j + rand.nextInt(vertices.size() - j));
+        }
+        List<Integer> cycle = new ArrayList<>(vertices.subList(0, length));
+        for (int i = 0; i < length; i++) {
+            g.addEdge(cycle.get(i), cycle.get((i + 1) % length), totalWeight / length);
+        }
+        return cycle;
+    }
+
+    /**
+     * Replaces the edges of {@code g} with a complete DAG over
+     * {@code vertices} (each earlier vertex points to every later one) with
+     * weights in [-10, 10] rounded to one decimal.
+     */
+    public static void randomizeCompleteDag(Graph g, List<Integer> vertices, long seed) {
+        SplittableRandom rand = new SplittableRandom(seed);
+        g.clearEdges();
+        for (int i = 0; i < vertices.size(); i++) {
+            for (int j = i + 1; j < vertices.size(); j++) {
+                double weight = Math.round(weight(rand, -10, 10) * 10.0) / 10.0;
+                g.appendEdge(vertices.get(i), vertices.get(j), weight);
+            }
+        }
+    }
+
+    private static Graph vertices(int n) {
+        Graph g = new Graph();
+        for (int v = 0; v < n; v++) {
+            g.addVertex(v);
+        }
+        return g;
+    }
+
+    private static double weight(SplittableRandom rand, double minWeight, double maxWeight) {
+        return minWeight == maxWeight ? minWeight : rand.nextDouble(minWeight, maxWeight);
+    }
+}
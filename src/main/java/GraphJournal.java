@@ -0,0 +1,607 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of the mutations made to a {@link Graph}.
+ *
+ * The directory holds a snapshot ({@code snapshot-G.bin}) and the logs
+ * written since it ({@code journal-G.log}, {@code journal-G+1.log}, ...).
+ * Mutations are buffered and written by a background thread in batches
+ * (group commit): one write and one fsync per commit interval rather than
+ * per mutation. Each batch carries a CRC, so a batch torn by a crash is
+ * dropped on the next {@link #open}.
+ *
+ * Once the current log grows past the compaction threshold, the graph is
+ * copied, a new log is started and the copy is written as the next snapshot
+ * in the background; older files are then deleted.
+ *
+ * Committed batches are also published to subscribers, so incremental
+ * solvers and caches can follow the graph as a change feed. They are
+ * delivered on the mutating thread, never the writer thread, so subscribers
+ * can read the graph safely.
+ *
+ * Once writing fails, further mutations of the graph are rejected with an
+ * {@link UncheckedIOException} before they change it. Mutations accepted
+ * before the failure was noticed may be lost; {@link #sync()} and
+ * {@link #close()} report the failure.
+ *
+ * Like {@link Graph}, mutations, {@link #sync()}, {@link #deliver()},
+ * {@link #compact()} and {@link #close()} must come from a single thread.
+ */
+public class GraphJournal implements Closeable {
+    static final int SNAPSHOT_MAGIC = 0x42464753; // "BFGS"
+    static final int LOG_MAGIC = 0x42464a4c; // "BFJL"
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 1 + 4 + 4 + 8;
+    private static final int LOG_HEADER_SIZE = 4 + 4 + 8;
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+    private static final GraphMutation.Type[] TYPES = GraphMutation.Type.values();
+
+    private final Path directory;
+    private final Graph graph;
+    private final Consumer<GraphMutation> listener = this::append;
+    private final Runnable guard = this::checkWritable;
+    private final List<Consumer<List<GraphMutation>>> subscribers = new CopyOnWriteArrayList<>();
+    private final Thread flusher;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private Thread compactor;
+    private final long replayedCount;
+
+    // Guarded by lock: the batch being filled by the mutating thread
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * RECORD_SIZE);
+    private List<GraphMutation> pendingMutations = new ArrayList<>();
+    private final ArrayDeque<List<GraphMutation>> undelivered = new ArrayDeque<>();
+    private long appendedCount;
+    private long committedCount;
+    private long commitCount;
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+    private long commitIntervalMillis = 5;
+    private long compactionThreshold = 64L << 20;
+    private boolean compactionDue;
+
+    // Guarded by ioLock: the log file being appended to
+    private final Object ioLock = new Object();
+    private FileChannel log;
+    private long generation;
+    private long logBytes;
+    private ByteBuffer spare = ByteBuffer.allocate(64 * RECORD_SIZE);
+
+    // Guarded by snapshotLock
+    private final Object snapshotLock = new Object();
+    private long snapshotGeneration = -1;
+
+    private GraphJournal(Path directory, Graph graph) throws IOException {
+        this.directory = directory;
+        this.graph = graph;
+        JfrEvents.GraphLoad event = new JfrEvents.GraphLoad();
+        event.begin();
+        this.replayedCount = recover();
+        if (event.shouldCommit()) {
+            event.origin = "journal";
+            event.path = directory.toString();
+            event.vertices = graph.getVertices().size();
+            event.edges = graph.getEdges().size();
+            event.commit();
+        }
+        graph.addMutationGuard(guard);
+        graph.addMutationListener(listener);
+        flusher = new Thread(this::flushLoop, "graph-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Replays the journal in {@code directory} into {@code graph} and records
+     * every later mutation of it. If the directory holds no journal yet, the
+     * graph's current contents are saved as the first snapshot.
+     */
+    public static GraphJournal open(Path directory, Graph graph) throws IOException {
+        Files.createDirectories(directory);
+        return new GraphJournal(directory, graph);
+    }
+
+    /**
+     * Sets how long the writer waits to gather mutations into one commit.
+     * 0 commits as soon as the writer is free.
+     */
+    public void setCommitInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis must be >= 0");
+        }
+        synchronized (lock) {
+            commitIntervalMillis = millis;
+        }
+    }
+
+    /** Sets the log size, in bytes, after which the journal is compacted. */
+    public void setCompactionThreshold(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("bytes must be > 0");
+        }
+        synchronized (lock) {
+            compactionThreshold = bytes;
+        }
+    }
+
+    /**
+     * Registers a subscriber called with each committed batch, in order.
+     * Batches are delivered once durable, on the mutating thread: during the
+     * next mutation, {@link #sync()}, {@link #deliver()} or {@link #close()}.
+     * The graph may by then contain later mutations, which arrive in later
+     * batches. Subscribers may read the graph but must not mutate it.
+     */
+    public void subscribe(Consumer<List<GraphMutation>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /** Unregisters a subscriber. */
+    public void unsubscribe(Consumer<List<GraphMutation>> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Calls subscribers with the batches committed since the last delivery.
+     * For threads that want the feed without mutating or syncing.
+     */
+    public void deliver() {
+        while (true) {
+            List<GraphMutation> batch;
+            synchronized (lock) {
+                batch = undelivered.poll();
+            }
+            if (batch == null) {
+                return;
+            }
+            for (Consumer<List<GraphMutation>> subscriber : subscribers) {
+                subscriber.accept(batch);
+            }
+        }
+    }
+
+    /** Returns how many mutations {@link #open} replayed. */
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    /** Returns how many mutations have been made durable since opening. */
+    public long getCommittedCount() {
+        synchronized (lock) {
+            return committedCount;
+        }
+    }
+
+    /** Returns how many batches have been written since opening. */
+    public long getCommitCount() {
+        synchronized (lock) {
+            return commitCount;
+        }
+    }
+
+    /**
+     * Blocks until every mutation made so far is durable and has been
+     * delivered to subscribers.
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appendedCount;
+            syncRequested = true;
+            lock.notifyAll();
+            while (committedCount < target && failure == null && flusher.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for journal commit");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        deliver();
+    }
+
+    /**
+     * Writes the current graph as a snapshot and deletes the logs it
+     * replaces. Blocks until the snapshot is on disk.
+     */
+    public void compact() throws IOException {
+        GraphSnapshot snapshot = GraphSnapshot.of(graph);
+        long snapshotGen = rotate();
+        writeSnapshot(snapshot, snapshotGen);
+    }
+
+    /** Commits outstanding mutations and stops recording. */
+    @Override
+    public void close() throws IOException {
+        graph.removeMutationListener(listener);
+        graph.removeMutationGuard(guard);
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+            Thread running = compactor;
+            if (running != null) {
+                running.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            try {
+                commitPending();
+            } finally {
+                log.close();
+            }
+        }
+        deliver();
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /** Rejects a mutation before it is applied if the journal cannot record it. */
+    private void checkWritable() {
+        synchronized (lock) {
+            if (failure != null) {
+                throw new UncheckedIOException("Graph journal failed", failure);
+            }
+        }
+    }
+
+    /** Buffers a mutation; called by the graph on its mutating thread. */
+    private void append(GraphMutation m) {
+        boolean compact;
+        synchronized (lock) {
+            if (pending.remaining() < RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                pending = larger.put(pending);
+            }
+            pending.put((byte) m.type.ordinal()).putInt(m.from).putInt(m.to).putDouble(m.weight);
+            pendingMutations.add(m);
+            appendedCount++;
+            if (pending.position() >= MAX_BATCH_BYTES) {
+                lock.notifyAll();
+            } else if (pending.position() == RECORD_SIZE) {
+                lock.notifyAll(); // wake the writer to open a commit window
+            }
+            compact = compactionDue && !closed;
+        }
+        if (compact && compacting.compareAndSet(false, true)) {
+            startBackgroundCompaction();
+        }
+        deliver();
+    }
+
+    private void startBackgroundCompaction() {
+        GraphSnapshot snapshot;
+        long snapshotGen;
+        try {
+            snapshot = GraphSnapshot.of(graph);
+            snapshotGen = rotate();
+        } catch (IOException e) {
+            fail(e);
+            compacting.set(false);
+            return;
+        }
+        compactor = new Thread(() -> {
+            try {
+                writeSnapshot(snapshot, snapshotGen);
+            } catch (IOException e) {
+                // The logs still hold everything; try again at the next threshold
+                System.err.println("Graph journal compaction failed: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        }, "graph-journal-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (!closed && pending.position() == 0) {
+                        lock.wait();
+                    }
+                    if (closed) {
+                        return; // close() commits the rest
+                    }
+                    // Group commit: keep gathering until the window closes
+                    long deadline = System.currentTimeMillis() + commitIntervalMillis;
+                    long remaining = commitIntervalMillis;
+                    while (!closed && !syncRequested && pending.position() < MAX_BATCH_BYTES && remaining > 0) {
+                        lock.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                    syncRequested = false;
+                }
+                synchronized (ioLock) {
+                    commitPending();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new InterruptedIOException("Journal writer interrupted"));
+        }
+    }
+
+    /** Writes the pending batch to the current log. Caller holds ioLock. */
+    private void commitPending() throws IOException {
+        ByteBuffer batch;
+        List<GraphMutation> mutations;
+        long count;
+        synchronized (lock) {
+            if (pending.position() == 0) {
+                return;
+            }
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            mutations = pendingMutations;
+            pendingMutations = new ArrayList<>();
+            count = appendedCount;
+        }
+        batch.flip();
+        CRC32 crc = new CRC32();
+        crc.update(batch.array(), 0, batch.limit());
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(batch.limit()).putInt((int) crc.getValue());
+        header.flip();
+        long written = header.remaining() + batch.remaining();
+        writeFully(log, header);
+        writeFully(log, batch);
+        log.force(false);
+        batch.clear();
+        logBytes += written;
+        synchronized (lock) {
+            // Queued before committedCount moves, so sync() delivers its own changes
+            if (!subscribers.isEmpty()) {
+                undelivered.add(Collections.unmodifiableList(mutations));
+            }
+            committedCount = count;
+            commitCount++;
+            compactionDue = logBytes >= compactionThreshold;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Commits outstanding mutations to the current log and starts the next
+     * one. Returns the new generation, whose snapshot is the graph as of now.
+     */
+    private long rotate() throws IOException {
+        synchronized (ioLock) {
+            commitPending();
+            log.close();
+            generation++;
+            log = createLog(generation);
+            logBytes = 0;
+            synchronized (lock) {
+                compactionDue = false;
+            }
+            return generation;
+        }
+    }
+
+    /** Writes snapshot {@code gen} and deletes the files it replaces. */
+    private void writeSnapshot(GraphSnapshot snapshot, long gen) throws IOException {
+        synchronized (snapshotLock) {
+            if (gen <= snapshotGeneration) {
+                return;
+            }
+            Path tmp = directory.resolve("snapshot-" + gen + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                    DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.vertices.length);
+                for (int v : snapshot.vertices) {
+                    out.writeInt(v);
+                }
+                out.writeInt(snapshot.edgeFrom.length);
+                for (int i = 0; i < snapshot.edgeFrom.length; i++) {
+                    out.writeInt(snapshot.edgeFrom[i]);
+                    out.writeInt(snapshot.edgeTo[i]);
+                    out.writeDouble(snapshot.edgeWeight[i]);
+                }
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(tmp, directory.resolve("snapshot-" + gen + ".bin"), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            snapshotGeneration = gen;
+            deleteBefore(gen);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot and replays the logs after it, dropping a
+     * torn batch at the end of the last log. Returns the number of
+     * mutations replayed.
+     */
+    private long recover() throws IOException {
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("snapshot-") && name.endsWith(".tmp")) {
+                    Files.delete(file); // unfinished compaction
+                } else if (name.startsWith("snapshot-") && name.endsWith(".bin")) {
+                    snapshots.put(parseGeneration(name, "snapshot-", ".bin"), file);
+                } else if (name.startsWith("journal-") && name.endsWith(".log")) {
+                    logs.put(parseGeneration(name, "journal-", ".log"), file);
+                }
+            }
+        }
+        long start = 0;
+        if (!snapshots.isEmpty()) {
+            start = snapshots.lastKey();
+            readSnapshot(snapshots.lastEntry().getValue());
+            snapshotGeneration = start;
+        }
+        long replayed = 0;
+        SortedMap<Long, Path> current = logs.tailMap(start);
+        for (Map.Entry<Long, Path> entry : current.entrySet()) {
+            boolean last = entry.getKey().equals(logs.lastKey());
+            replayed += replayLog(entry.getValue(), last);
+        }
+        deleteBefore(start);
+        if (current.isEmpty()) {
+            generation = start;
+            log = createLog(generation);
+            if (snapshots.isEmpty() && !graph.getVertices().isEmpty()) {
+                // New journal for an existing graph: its contents become the first snapshot
+                writeSnapshot(GraphSnapshot.of(graph), generation);
+            }
+        } else {
+            generation = logs.lastKey();
+            log = FileChannel.open(logs.lastEntry().getValue(), StandardOpenOption.WRITE);
+            logBytes = log.size() - LOG_HEADER_SIZE;
+            log.position(log.size());
+        }
+        return replayed;
+    }
+
+    private void readSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a graph snapshot: " + file);
+            }
+            int vertexCount = in.readInt();
+            for (int i = 0; i < vertexCount; i++) {
+                graph.addVertex(in.readInt());
+            }
+            int edgeCount = in.readInt();
+            for (int i = 0; i < edgeCount; i++) {
+                graph.appendEdge(in.readInt(), in.readInt(), in.readDouble());
+            }
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Truncated graph snapshot: " + file);
+            }
+        }
+    }
+
+    /** Applies the valid batches of a log. A torn tail is truncated if {@code last}. */
+    private long replayLog(Path file, boolean last) throws IOException {
+        long replayed = 0;
+        long valid = LOG_HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != LOG_MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a graph journal: " + file);
+            }
+            in.readLong(); // generation
+            byte[] payload = new byte[0];
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length % RECORD_SIZE != 0 || length > (1 << 30)) {
+                        break;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[length];
+                    }
+                    in.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                ByteBuffer records = ByteBuffer.wrap(payload, 0, length);
+                while (records.hasRemaining()) {
+                    int type = records.get();
+                    new GraphMutation(TYPES[type], records.getInt(), records.getInt(), records.getDouble())
+                            .applyTo(graph);
+                }
+                replayed += length / RECORD_SIZE;
+                valid += 8 + length;
+            }
+        }
+        if (valid < Files.size(file)) {
+            if (!last) {
+                throw new IOException("Corrupt graph journal: " + file);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        return replayed;
+    }
+
+    private FileChannel createLog(long gen) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve("journal-" + gen + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE).putInt(LOG_MAGIC).putInt(VERSION).putLong(gen);
+        header.flip();
+        writeFully(channel, header);
+        channel.force(true);
+        return channel;
+    }
+
+    /** Deletes snapshots and logs older than generation {@code gen}. */
+    private void deleteBefore(long gen) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("snapshot-") && name.endsWith(".bin")
+                        && parseGeneration(name, "snapshot-", ".bin") < gen) {
+                    Files.delete(file);
+                } else if (name.startsWith("journal-") && name.endsWith(".log")
+                        && parseGeneration(name, "journal-", ".log") < gen) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = e;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private static long parseGeneration(String name, String prefix, String suffix) throws IOException {
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file in graph journal: " + name);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
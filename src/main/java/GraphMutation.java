@@ -0,0 +1,63 @@
+/**
+ * One change made to a {@link Graph}. Published to mutation listeners and
+ * stored by {@link GraphJournal}.
+ */
+public final class GraphMutation {
+    public enum Type {
+        ADD_VERTEX, REMOVE_VERTEX, ADD_EDGE, APPEND_EDGE, REMOVE_EDGE, CLEAR_EDGES
+    }
+
+    public final Type type;
+    /** The vertex, or the edge's source. */
+    public final int from;
+    /** The edge's target; unused for vertex mutations. */
+    public final int to;
+    /** The new weight for ADD_EDGE and APPEND_EDGE. */
+    public final double weight;
+
+    public GraphMutation(Type type, int from, int to, double weight) {
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.weight = weight;
+    }
+
+    /** Performs this mutation on {@code graph}. */
+    public void applyTo(Graph graph) {
+        switch (type) {
+            case ADD_VERTEX:
+                graph.addVertex(from);
+                break;
+            case REMOVE_VERTEX:
+                graph.removeVertex(from);
+                break;
+            case ADD_EDGE:
+                graph.addEdge(from, to, weight);
+                break;
+            case APPEND_EDGE:
+                graph.appendEdge(from, to, weight);
+                break;
+            case REMOVE_EDGE:
+                graph.removeEdge(from, to);
+                break;
+            case CLEAR_EDGES:
+                graph.clearEdges();
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADD_VERTEX:
+            case REMOVE_VERTEX:
+                return type + " " + from;
+            case CLEAR_EDGES:
+                return type.toString();
+            case REMOVE_EDGE:
+                return type + " " + from + "->" + to;
+            default:
+                return type + " " + from + "->" + to + " (" + weight + ")";
+        }
+    }
+}
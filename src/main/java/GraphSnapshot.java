@@ -0,0 +1,84 @@
+import java.util.*;
+
+/**
+ * Immutable compressed-sparse-row copy of a {@link Graph}, safe to share
+ * between threads. Vertices keep their ids; arrays are indexed by id like
+ * the distance arrays of {@link BellmanFordAlgorithm}. Edges are grouped by
+ * source vertex: the edges of {@code v} are {@code offsets[v]} to
+ * {@code offsets[v + 1] - 1}.
+ *
+ * The arrays are exposed for hot loops and must not be modified.
+ */
+public final class GraphSnapshot {
+    /** Max vertex id + 1. */
+    final int arraySize;
+    /** Vertex ids in ascending order. */
+    final int[] vertices;
+    /** True for ids that are vertices of the graph. */
+    final boolean[] present;
+    final int[] offsets;
+    final int[] edgeFrom;
+    final int[] edgeTo;
+    final double[] edgeWeight;
+
+    private GraphSnapshot(int arraySize, int[] vertices, int[] offsets, int[] edgeFrom, int[] edgeTo,
+            double[] edgeWeight) {
+        this.arraySize = arraySize;
+        this.vertices = vertices;
+        this.present = new boolean[arraySize];
+        for (int v : vertices) {
+            present[v] = true;
+        }
+        this.offsets = offsets;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeWeight = edgeWeight;
+    }
+
+    /** Copies the current state of {@code graph}. */
+    public static GraphSnapshot of(Graph graph) {
+        int[] vertices = graph.getVertices().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int arraySize = vertices.length == 0 ? 1 : vertices[vertices.length - 1] + 1;
+        int[] offsets = new int[arraySize + 1];
+        for (int v : vertices) {
+            offsets[v + 1] = graph.getOutgoingEdges(v).size();
+        }
+        for (int v = 0; v < arraySize; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int m = offsets[arraySize];
+        int[] edgeFrom = new int[m];
+        int[] edgeTo = new int[m];
+        double[] edgeWeight = new double[m];
+        for (int v : vertices) {
+            int i = offsets[v];
+            for (Graph.Edge e : graph.getOutgoingEdges(v)) {
+                edgeFrom[i] = v;
+                edgeTo[i] = e.to;
+                edgeWeight[i] = e.weight;
+                i++;
+            }
+        }
+        return new GraphSnapshot(arraySize, vertices, offsets, edgeFrom, edgeTo, edgeWeight);
+    }
+
+    /** Returns max vertex id + 1, the length of per-vertex arrays. */
+    public int getArraySize() {
+        return arraySize;
+    }
+
+    /** Returns the number of vertices. */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /** Returns the number of edges. */
+    public int getEdgeCount() {
+        return edgeTo.length;
+    }
+
+    /** Returns true if {@code v} is a vertex of the snapshot. */
+    public boolean hasVertex(int v) {
+        return v >= 0 && v < arraySize && present[v];
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.*;
+
+/**
+ * Finds the cheapest paths that use at most k edges from a source.
+ *
+ * Each round relaxes edges from the previous round's distances into a second
+ * buffer, so a round adds exactly one hop (in-place updates, as in
+ * {@link BellmanFordAlgorithm#run()}, can chain several hops per round).
+ * All buffers are kept between queries and only grow, so repeated queries do
+ * not allocate. The edge set is captured at construction; call
+ * {@link #reload()} after the graph changes.
+ */
+public class HopBoundedSolver {
+    private final Graph graph;
+    private int arraySize;
+    private int edgeCount;
+    private int[] edgeFrom = new int[0];
+    private int[] edgeTo = new int[0];
+    private double[] edgeWeight = new double[0];
+
+    // Double-buffered distances: previous round and current round
+    private double[] previous = new double[0];
+    private double[] current = new double[0];
+    // improvedFrom[h][v] is the predecessor if round h improved v, else -1
+    private int[][] improvedFrom = new int[0][];
+    // Hop count at which each vertex reached its best distance
+    private int[] bestHops = new int[0];
+
+    private int source = -1;
+    private int rounds;
+
+    /** Creates a solver over the current edges of {@code graph}. */
+    public HopBoundedSolver(Graph graph) {
+        this.graph = graph;
+        reload();
+    }
+
+    /** Re-reads the edge set of the graph. */
+    public void reload() {
+        arraySize = graph.getVertices().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+        List<Graph.Edge> edges = graph.getEdges();
+        edgeCount = edges.size();
+        if (edgeFrom.length < edgeCount) {
+            edgeFrom = new int[edgeCount];
+            edgeTo = new int[edgeCount];
+            edgeWeight = new double[edgeCount];
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            Graph.Edge e = edges.get(i);
+            edgeFrom[i] = e.from;
+            edgeTo[i] = e.to;
+            edgeWeight[i] = e.weight;
+        }
+        if (previous.length < arraySize) {
+            previous = new double[arraySize];
+            current = new double[arraySize];
+            bestHops = new int[arraySize];
+            for (int h = 0; h < improvedFrom.length; h++) {
+                improvedFrom[h] = new int[arraySize];
+            }
+        }
+        source = -1;
+    }
+
+    /**
+     * Computes, for every vertex, the cheapest path from {@code source} using
+     * at most {@code maxHops} edges. Stops early once a round changes nothing.
+     */
+    public void solve(int source, int maxHops) {
+        if (maxHops < 0) {
+            throw new IllegalArgumentException("maxHops must be >= 0");
+        }
+        if (source < 0 || source >= arraySize) {
+            throw new IllegalArgumentException("Unknown source vertex " + source);
+        }
+        ensureRounds(maxHops);
+        this.source = source;
+        Arrays.fill(previous, 0, arraySize, Double.POSITIVE_INFINITY);
+        Arrays.fill(bestHops, 0, arraySize, 0);
+        previous[source] = 0;
+        rounds = 0;
+        for (int h = 1; h <= maxHops; h++) {
+            System.arraycopy(previous, 0, current, 0, arraySize);
+            int[] from = improvedFrom[h];
+            Arrays.fill(from, 0, arraySize, -1);
+            boolean changed = false;
+            for (int i = 0; i < edgeCount; i++) {
+                double d = previous[edgeFrom[i]] + edgeWeight[i];
+                int to = edgeTo[i];
+                if (d < current[to]) {
+                    current[to] = d;
+                    from[to] = edgeFrom[i];
+                    bestHops[to] = h;
+                    changed = true;
+                }
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+            rounds = h;
+            if (!changed) {
+                break;
+            }
+        }
+    }
+
+    /** Returns the best cost to {@code v} found by the last query. */
+    public double getDistance(int v) {
+        checkSolved();
+        return v >= 0 && v < arraySize ? previous[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns a copy of the distances found by the last query. */
+    public double[] getDistances() {
+        checkSolved();
+        return Arrays.copyOf(previous, arraySize);
+    }
+
+    /** Returns the number of rounds the last query actually ran. */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Returns the vertices on the best path to {@code v}, source first, or an
+     * empty list if {@code v} is not reachable within the hop bound.
+     */
+    public List<Integer> getPath(int v) {
+        if (getDistance(v) == Double.POSITIVE_INFINITY) {
+            return Collections.emptyList();
+        }
+        LinkedList<Integer> path = new LinkedList<>();
+        int vertex = v;
+        int h = bestHops[v];
+        path.addFirst(vertex);
+        while (h > 0) {
+            int from = improvedFrom[h][vertex];
+            if (from != -1) {
+                vertex = from;
+                path.addFirst(vertex);
+            }
+            h--;
+        }
+        return path;
+    }
+
+    private void ensureRounds(int maxHops) {
+        if (improvedFrom.length <= maxHops) {
+            int[][] grown = Arrays.copyOf(improvedFrom, maxHops + 1);
+            for (int h = improvedFrom.length; h < grown.length; h++) {
+                grown[h] = new int[previous.length];
+            }
+            improvedFrom = grown;
+        }
+    }
+
+    private void checkSolved() {
+        if (source < 0) {
+            throw new IllegalStateException("solve() has not been called");
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import jdk.jfr.*;
+
+/**
+ * Custom Java Flight Recorder events for the solver, graph loading, step
+ * recording and rendering, shown under "Bellman-Ford" in JDK Mission
+ * Control next to GC and CPU samples.
+ *
+ * Usage: {@code begin()} before the work, then fill in fields and
+ * {@code commit()} only if {@code shouldCommit()}. While no recording has
+ * the event enabled those calls are no-ops and the JIT drops the unused
+ * event object, so instrumented code costs nothing.
+ */
+final class JfrEvents {
+    private JfrEvents() {
+    }
+
+    @Name("bellmanford.SolverRun")
+    @Label("Solver Run")
+    @Category({ "Bellman-Ford", "Solver" })
+    @Description("One BellmanFordAlgorithm.run()")
+    static final class SolverRun extends Event {
+        @Label("Source")
+        int source;
+        @Label("Vertices")
+        int vertices;
+        @Label("Edges")
+        int edges;
+        @Label("Rounds")
+        int rounds;
+        @Label("Relaxations")
+        long relaxations;
+        @Label("Warm Start")
+        boolean warmStart;
+        @Label("Negative Cycle")
+        boolean negativeCycle;
+    }
+
+    @Name("bellmanford.SolverRound")
+    @Label("Solver Round")
+    @Category({ "Bellman-Ford", "Solver" })
+    @Description("One pass over the edges, or one queue pass in a warm-started run")
+    static final class SolverRound extends Event {
+        @Label("Round")
+        int round;
+        @Label("Edges Scanned")
+        long edgesScanned;
+        @Label("Relaxations")
+        long relaxations;
+    }
+
+    @Name("bellmanford.GraphLoad")
+    @Label("Graph Load")
+    @Category({ "Bellman-Ford", "Graph" })
+    static final class GraphLoad extends Event {
+        @Label("Origin")
+        @Description("trace, journal or snapshot")
+        String origin;
+        @Label("Path")
+        String path;
+        @Label("Vertices")
+        int vertices;
+        @Label("Edges")
+        int edges;
+    }
+
+    @Name("bellmanford.TraceRecording")
+    @Label("Trace Recording")
+    @Category({ "Bellman-Ford", "Trace" })
+    @Description("Step recording during one solver run")
+    static final class TraceRecording extends Event {
+        @Label("Recorder")
+        String recorder;
+        @Label("Steps")
+        long steps;
+    }
+
+    @Name("bellmanford.TraceSpill")
+    @Label("Trace Spill")
+    @Category({ "Bellman-Ford", "Trace" })
+    @Description("A trace segment spilled or dropped to meet the memory budget")
+    static final class TraceSpill extends Event {
+        @Label("Steps")
+        int steps;
+        @Label("Raw Size")
+        @DataAmount
+        long rawBytes;
+        @Label("Compressed Size")
+        @DataAmount
+        long compressedBytes;
+        @Label("Dropped")
+        boolean dropped;
+    }
+
+    @Name("bellmanford.Render")
+    @Label("Render")
+    @Category({ "Bellman-Ford", "Visualizer" })
+    @Description("drawGraph or animateStep on the FX thread")
+    static final class Render extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Vertices")
+        int vertices;
+        @Label("Edges")
+        int edges;
+    }
+}
@@ -0,0 +1,386 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the negative cycles of a changing graph up to date, e.g. arbitrage
+ * loops in a currency graph weighted by -log(rate).
+ *
+ * The monitor maintains Bellman-Ford distances from a virtual source with a
+ * 0-weight edge to every vertex. They stay feasible, d[u] + w >= d[v], on
+ * every edge outside the reported cycles, so a batch of updates can only
+ * break them where a weight dropped: those edges seed the label-correcting
+ * pass, and only vertices whose distance must drop are visited. Raising a
+ * weight never breaks feasibility and only rechecks live cycles.
+ *
+ * A cycle in the predecessor graph is negative. When one appears it is
+ * reported and its vertices are set aside, so the pass still converges and
+ * finds other cycles. Live cycles are therefore vertex-disjoint and every
+ * negative cycle shares a vertex with one of them. A cycle is retired once
+ * its weight is no longer negative, and its vertices rejoin.
+ *
+ * Updates must go through {@link #applyBatch} so new edges are tracked:
+ * until {@link #close} the monitor rejects any other change to the graph
+ * with an {@link IllegalStateException}. Not thread-safe.
+ */
+public class NegativeCycleMonitor {
+    /** A negative cycle found by the monitor. */
+    public static class Cycle {
+        private final List<Graph.Edge> edges;
+        private final double detectedWeight;
+        private final long alertLatencyNanos;
+
+        Cycle(List<Graph.Edge> edges, long alertLatencyNanos) {
+            this.edges = Collections.unmodifiableList(edges);
+            this.detectedWeight = getWeight();
+            this.alertLatencyNanos = alertLatencyNanos;
+        }
+
+        /** Returns the vertices in cycle order, starting anywhere on it. */
+        public List<Integer> getVertices() {
+            List<Integer> vertices = new ArrayList<>(edges.size());
+            for (Graph.Edge e : edges) {
+                vertices.add(e.from);
+            }
+            return vertices;
+        }
+
+        /** Returns the cycle's edges in order. */
+        public List<Graph.Edge> getEdges() {
+            return edges;
+        }
+
+        /** Returns the cycle's weight with the current edge weights. */
+        public double getWeight() {
+            double sum = 0;
+            for (Graph.Edge e : edges) {
+                sum += e.weight;
+            }
+            return sum;
+        }
+
+        /** Returns the weight when the cycle was found. */
+        public double getDetectedWeight() {
+            return detectedWeight;
+        }
+
+        /** For -log(rate) weights: the product of the rates around the cycle. */
+        public double getRateProduct() {
+            return Math.exp(-getWeight());
+        }
+
+        /** Returns the time from the start of the batch to this alert. */
+        public long getAlertLatencyNanos() {
+            return alertLatencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return getVertices() + " weight " + getWeight();
+        }
+    }
+
+    /** What one batch changed and how long it took. */
+    public static class BatchReport {
+        public final int updates;
+        public final long latencyNanos;
+        public final long relaxations;
+        public final int visitedVertices;
+        public final List<Cycle> newCycles;
+        public final List<Cycle> retiredCycles;
+        public final int liveCycles;
+
+        BatchReport(int updates, long latencyNanos, long relaxations, int visitedVertices, List<Cycle> newCycles,
+                List<Cycle> retiredCycles, int liveCycles) {
+            this.updates = updates;
+            this.latencyNanos = latencyNanos;
+            this.relaxations = relaxations;
+            this.visitedVertices = visitedVertices;
+            this.newCycles = Collections.unmodifiableList(newCycles);
+            this.retiredCycles = Collections.unmodifiableList(retiredCycles);
+            this.liveCycles = liveCycles;
+        }
+
+        /** Returns the batch's throughput in updates per second. */
+        public double getUpdatesPerSecond() {
+            return latencyNanos == 0 ? 0 : updates * 1e9 / latencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d updates in %.3f ms (%.0f/s), %d relaxations over %d vertices, "
+                    + "+%d/-%d cycles, %d live", updates, latencyNanos / 1e6, getUpdatesPerSecond(), relaxations,
+                    visitedVertices, newCycles.size(), retiredCycles.size(), liveCycles);
+        }
+    }
+
+    private final Graph graph;
+    private final List<List<Graph.Edge>> incoming = new ArrayList<>();
+    private final List<Cycle> live = new ArrayList<>();
+    private final Runnable guard = this::checkApplying;
+    private boolean applying;
+    private Consumer<Cycle> alertListener;
+    private double[] distance = new double[0];
+    private Graph.Edge[] parent = new Graph.Edge[0];
+    private boolean[] onCycle = new boolean[0];
+    // Ring buffer: each vertex is in the queue at most once
+    private int[] queue = new int[0];
+    private boolean[] inQueue = new boolean[0];
+    private int head, queued;
+    // Vertices relaxed in the current batch, and stamps for the cycle scan
+    private int[] touchedIn = new int[0];
+    private final List<Integer> touched = new ArrayList<>();
+    private long[] walkMark = new long[0];
+    private long walk;
+    private int batch, sinceScan;
+    private long batchStart, relaxations;
+    private List<Cycle> found = new ArrayList<>();
+    private BatchReport lastReport;
+
+    /** Scans {@code graph} for negative cycles; later changes come through {@link #applyBatch}. */
+    public NegativeCycleMonitor(Graph graph) {
+        this.graph = graph;
+        long start = beginBatch();
+        int maxVertex = graph.getVertices().stream().mapToInt(Integer::intValue).max().orElse(-1);
+        ensureCapacity(maxVertex + 1);
+        for (Graph.Edge e : graph.getEdges()) {
+            incoming.get(e.to).add(e);
+        }
+        for (int v : graph.getVertices()) {
+            enqueue(v);
+        }
+        propagate();
+        lastReport = endBatch(start, 0, Collections.emptyList());
+        graph.addMutationGuard(guard);
+    }
+
+    /** Stops monitoring and allows the graph to be changed directly again. */
+    public void close() {
+        graph.removeMutationGuard(guard);
+    }
+
+    /** Sets a listener called as soon as a cycle is found, before the batch ends. */
+    public void setAlertListener(Consumer<Cycle> listener) {
+        this.alertListener = listener;
+    }
+
+    /**
+     * Sets each edge {@code from -> to} to the given weight, adding edges that
+     * do not exist yet, and brings the set of live cycles up to date.
+     */
+    public BatchReport applyBatch(List<Graph.Edge> updates) {
+        long start = beginBatch();
+        List<Graph.Edge> lowered = new ArrayList<>();
+        applying = true;
+        try {
+            for (Graph.Edge update : updates) {
+                Graph.Edge e = findEdge(update.from, update.to);
+                if (e == null) {
+                    graph.addEdge(update.from, update.to, update.weight);
+                    ensureCapacity(Math.max(update.from, update.to) + 1);
+                    e = findEdge(update.from, update.to);
+                    incoming.get(e.to).add(e);
+                    lowered.add(e);
+                } else if (update.weight < e.weight) {
+                    graph.addEdge(update.from, update.to, update.weight);
+                    lowered.add(e);
+                } else if (update.weight > e.weight) {
+                    graph.addEdge(update.from, update.to, update.weight);
+                    // Keeps every predecessor edge tight or slack, so predecessor cycles stay negative
+                    if (parent[e.to] == e) {
+                        parent[e.to] = null;
+                    }
+                }
+            }
+        } finally {
+            applying = false;
+        }
+
+        List<Cycle> retired = new ArrayList<>();
+        List<Integer> rejoined = new ArrayList<>();
+        for (Iterator<Cycle> it = live.iterator(); it.hasNext();) {
+            Cycle cycle = it.next();
+            if (cycle.getWeight() >= 0) {
+                it.remove();
+                retired.add(cycle);
+                for (Graph.Edge e : cycle.getEdges()) {
+                    onCycle[e.from] = false;
+                    parent[e.from] = null;
+                    rejoined.add(e.from);
+                }
+            }
+        }
+        for (int v : rejoined) {
+            // Edges into v were skipped while it was set aside
+            for (Graph.Edge e : incoming.get(v)) {
+                if (!onCycle[e.from]) {
+                    relax(e);
+                }
+            }
+            enqueue(v);
+        }
+        for (Graph.Edge e : lowered) {
+            if (!onCycle[e.from] && !onCycle[e.to]) {
+                relax(e);
+            }
+        }
+        propagate();
+        lastReport = endBatch(start, updates.size(), retired);
+        return lastReport;
+    }
+
+    /** Returns the live negative cycles. */
+    public List<Cycle> getCycles() {
+        return Collections.unmodifiableList(live);
+    }
+
+    /** Returns the report of the last batch (or of the initial scan). */
+    public BatchReport getLastReport() {
+        return lastReport;
+    }
+
+    private void checkApplying() {
+        if (!applying) {
+            throw new IllegalStateException("Graph is monitored; change it through applyBatch");
+        }
+    }
+
+    private long beginBatch() {
+        batch++;
+        touched.clear();
+        relaxations = 0;
+        sinceScan = 0;
+        found = new ArrayList<>();
+        batchStart = System.nanoTime();
+        return batchStart;
+    }
+
+    private BatchReport endBatch(long start, int updates, List<Cycle> retired) {
+        return new BatchReport(updates, System.nanoTime() - start, relaxations, touched.size(), found, retired,
+                live.size());
+    }
+
+    /** Label-correcting pass over the queued vertices. */
+    private void propagate() {
+        while (queued > 0) {
+            int u = queue[head];
+            head = head + 1 == queue.length ? 0 : head + 1;
+            queued--;
+            inQueue[u] = false;
+            if (onCycle[u]) {
+                continue;
+            }
+            for (Graph.Edge e : graph.getOutgoingEdges(u)) {
+                if (!onCycle[e.to]) {
+                    relax(e);
+                }
+            }
+        }
+    }
+
+    private void relax(Graph.Edge e) {
+        double candidate = distance[e.from] + e.weight;
+        if (candidate >= distance[e.to]) {
+            return;
+        }
+        distance[e.to] = candidate;
+        parent[e.to] = e;
+        relaxations++;
+        if (touchedIn[e.to] != batch) {
+            touchedIn[e.to] = batch;
+            touched.add(e.to);
+        }
+        enqueue(e.to);
+        // Scan cost is proportional to the region touched, so amortized O(1) per relaxation
+        if (++sinceScan >= Math.max(16, touched.size())) {
+            sinceScan = 0;
+            scanForCycles();
+        }
+    }
+
+    /** Finds cycles in the predecessor graph among the touched vertices. */
+    private void scanForCycles() {
+        long scanStart = walk + 1;
+        for (int v : touched) {
+            if (walkMark[v] >= scanStart || onCycle[v]) {
+                continue;
+            }
+            long current = ++walk;
+            int x = v;
+            while (x >= 0 && !onCycle[x] && walkMark[x] < scanStart) {
+                walkMark[x] = current;
+                x = parent[x] == null ? -1 : parent[x].from;
+            }
+            if (x >= 0 && !onCycle[x] && walkMark[x] == current) {
+                reportCycle(x);
+            }
+        }
+    }
+
+    private void reportCycle(int start) {
+        List<Graph.Edge> edges = new ArrayList<>();
+        int x = start;
+        do {
+            Graph.Edge e = parent[x];
+            edges.add(e);
+            x = e.from;
+        } while (x != start);
+        Collections.reverse(edges);
+        Cycle cycle = new Cycle(edges, System.nanoTime() - batchStart);
+        if (cycle.getWeight() >= 0) {
+            parent[start] = null; // not expected; break it rather than loop
+            return;
+        }
+        for (Graph.Edge e : edges) {
+            onCycle[e.from] = true;
+        }
+        live.add(cycle);
+        found.add(cycle);
+        if (alertListener != null) {
+            alertListener.accept(cycle);
+        }
+    }
+
+    private void enqueue(int v) {
+        if (!inQueue[v]) {
+            inQueue[v] = true;
+            int tail = head + queued;
+            queue[tail >= queue.length ? tail - queue.length : tail] = v;
+            queued++;
+        }
+    }
+
+    private Graph.Edge findEdge(int from, int to) {
+        for (Graph.Edge e : graph.getOutgoingEdges(from)) {
+            if (e.to == to) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /** Grows the per-vertex arrays; new vertices start at distance 0 from the virtual source. */
+    private void ensureCapacity(int size) {
+        int old = distance.length;
+        if (size <= old) {
+            return;
+        }
+        int capacity = Math.max(size, old * 2);
+        distance = Arrays.copyOf(distance, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        onCycle = Arrays.copyOf(onCycle, capacity);
+        inQueue = Arrays.copyOf(inQueue, capacity);
+        touchedIn = Arrays.copyOf(touchedIn, capacity);
+        walkMark = Arrays.copyOf(walkMark, capacity);
+        // Unroll the ring so it can grow
+        int[] grown = new int[capacity];
+        for (int i = 0; i < queued; i++) {
+            int k = head + i;
+            grown[i] = queue[k >= queue.length ? k - queue.length : k];
+        }
+        queue = grown;
+        head = 0;
+        while (incoming.size() < capacity) {
+            incoming.add(new ArrayList<>());
+        }
+    }
+}
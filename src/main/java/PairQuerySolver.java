@@ -0,0 +1,333 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-pair shortest path queries. One Bellman-Ford pass from a virtual
+ * source gives every vertex a potential h with h(v) <= h(u) + w(u, v), so
+ * the reduced weights w(u, v) + h(u) - h(v) are non-negative while shortest
+ * paths stay the same (Johnson's reweighting). Each query is then a
+ * bidirectional Dijkstra on reduced weights that stops once the two
+ * frontiers together cannot improve the best meeting point, usually long
+ * before the whole graph is settled.
+ *
+ * Potentials are cached per {@link Graph#getVersion() graph version}. After
+ * an edit they are recomputed starting from the previous ones, which for
+ * small edits takes a round or two. If the graph has a negative cycle,
+ * queries fall back to a full {@link ComponentSolver} run, done once per
+ * source and graph version.
+ *
+ * Queries may run concurrently as long as the graph is not modified.
+ */
+public class PairQuerySolver {
+    /** Answer to one query. */
+    public static final class Result {
+        public final int source;
+        public final int target;
+        /** +infinity if unreachable, -infinity if a negative cycle is on the way. */
+        public final double distance;
+        /** Vertices from source to target; empty if there is no shortest path. */
+        public final List<Integer> path;
+        /** Vertices settled by the search (both directions). */
+        public final int settledVertices;
+        /** True if the potentials were computed for this query. */
+        public final boolean potentialsComputed;
+        public final long nanos;
+
+        Result(int source, int target, double distance, List<Integer> path, int settledVertices,
+                boolean potentialsComputed, long nanos) {
+            this.source = source;
+            this.target = target;
+            this.distance = distance;
+            this.path = Collections.unmodifiableList(path);
+            this.settledVertices = settledVertices;
+            this.potentialsComputed = potentialsComputed;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d -> %d: %s via %s, %d settled, %.3f ms%s", source, target, distance, path,
+                    settledVertices, nanos / 1e6, potentialsComputed ? " (new potentials)" : "");
+        }
+    }
+
+    /** A snapshot with its potentials and reverse edges; h is null if there is a negative cycle. */
+    private static final class Potentials {
+        final long version;
+        final GraphSnapshot snapshot;
+        final double[] h;
+        final int rounds;
+        final int[] reverseOffsets;
+        final int[] reverseEdges; // snapshot edge indices grouped by target
+        final Map<Integer, ShortestPathResult> fullSolves = new ConcurrentHashMap<>(); // by source, if h is null
+
+        Potentials(long version, GraphSnapshot snapshot, double[] h, int rounds) {
+            this.version = version;
+            this.snapshot = snapshot;
+            this.h = h;
+            this.rounds = rounds;
+            int size = snapshot.arraySize;
+            reverseOffsets = new int[size + 1];
+            for (int v : snapshot.edgeTo) {
+                reverseOffsets[v + 1]++;
+            }
+            for (int v = 0; v < size; v++) {
+                reverseOffsets[v + 1] += reverseOffsets[v];
+            }
+            reverseEdges = new int[snapshot.edgeTo.length];
+            int[] fill = Arrays.copyOf(reverseOffsets, size);
+            for (int k = 0; k < snapshot.edgeTo.length; k++) {
+                reverseEdges[fill[snapshot.edgeTo[k]]++] = k;
+            }
+        }
+
+        double reduced(int k) {
+            // Round-off can leave tight edges a hair below zero
+            return Math.max(0, snapshot.edgeWeight[k] + h[snapshot.edgeFrom[k]] - h[snapshot.edgeTo[k]]);
+        }
+    }
+
+    /** Per-thread search state, reset after each query by undoing what it touched. */
+    private static final class Workspace {
+        final double[] forward, backward;
+        final int[] forwardParent, backwardParent; // predecessor / successor on the path
+        final int[] forwardPosition, backwardPosition; // heap index + 1; 0 = not queued, -1 = settled
+        final int[] forwardHeap, backwardHeap;
+        final int[] touched;
+        int touchedCount;
+
+        Workspace(int size, int vertexCount) {
+            forward = new double[size];
+            backward = new double[size];
+            Arrays.fill(forward, Double.POSITIVE_INFINITY);
+            Arrays.fill(backward, Double.POSITIVE_INFINITY);
+            forwardParent = new int[size];
+            backwardParent = new int[size];
+            forwardPosition = new int[size];
+            backwardPosition = new int[size];
+            forwardHeap = new int[vertexCount];
+            backwardHeap = new int[vertexCount];
+            touched = new int[2 * vertexCount];
+        }
+
+        void touch(int v, double[] side) {
+            if (side[v] == Double.POSITIVE_INFINITY) {
+                touched[touchedCount++] = v;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                int v = touched[i];
+                forward[v] = backward[v] = Double.POSITIVE_INFINITY;
+                forwardPosition[v] = backwardPosition[v] = 0;
+            }
+            touchedCount = 0;
+        }
+    }
+
+    private final Graph graph;
+    private boolean bidirectional = true;
+    private Potentials potentials;
+    private int potentialComputations;
+    private int fullSolves;
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<>();
+
+    public PairQuerySolver(Graph graph) {
+        this.graph = graph;
+    }
+
+    /** Searches from both ends (default) or only forward from the source. */
+    public void setBidirectional(boolean bidirectional) {
+        this.bidirectional = bidirectional;
+    }
+
+    /** Returns how many times potentials were computed, for tests and tuning. */
+    public synchronized int getPotentialComputations() {
+        return potentialComputations;
+    }
+
+    /** Returns the Bellman-Ford rounds of the last potential computation. */
+    public synchronized int getPotentialRounds() {
+        return potentials == null ? 0 : potentials.rounds;
+    }
+
+    /** Returns how many full solves negative-cycle queries ran, for tests and tuning. */
+    public synchronized int getFullSolves() {
+        return fullSolves;
+    }
+
+    /** Computes a shortest path from {@code source} to {@code target}. */
+    public Result query(int source, int target) {
+        long start = System.nanoTime();
+        int computations = getPotentialComputations();
+        Potentials p = potentials();
+        boolean computed = getPotentialComputations() != computations;
+        GraphSnapshot g = p.snapshot;
+        if (!g.hasVertex(source) || !g.hasVertex(target)) {
+            return new Result(source, target, Double.POSITIVE_INFINITY, Collections.emptyList(), 0, computed,
+                    System.nanoTime() - start);
+        }
+        if (p.h == null) {
+            ShortestPathResult all = p.fullSolves.computeIfAbsent(source, s -> fullSolve(g, s));
+            return new Result(source, target, all.getDistance(target), all.getPath(target), g.getVertexCount(),
+                    computed, System.nanoTime() - start);
+        }
+
+        Workspace w = workspaces.get();
+        if (w == null || w.forward.length != g.arraySize || w.forwardHeap.length != g.vertices.length) {
+            w = new Workspace(g.arraySize, g.vertices.length);
+            workspaces.set(w);
+        }
+        try {
+            return search(p, w, source, target, computed, start);
+        } finally {
+            w.reset();
+        }
+    }
+
+    private Result search(Potentials p, Workspace w, int source, int target, boolean computed, long start) {
+        GraphSnapshot g = p.snapshot;
+        w.touch(source, w.forward);
+        w.forward[source] = 0;
+        w.forwardParent[source] = -1;
+        w.forwardHeap[0] = source;
+        w.forwardPosition[source] = 1;
+        int forwardSize = 1;
+        int backwardSize = 0;
+        if (bidirectional) {
+            w.touch(target, w.backward);
+            w.backward[target] = 0;
+            w.backwardParent[target] = -1;
+            w.backwardHeap[0] = target;
+            w.backwardPosition[target] = 1;
+            backwardSize = 1;
+        }
+        double best = source == target ? 0 : Double.POSITIVE_INFINITY;
+        int meet = source == target ? source : -1;
+        int settled = 0;
+
+        while (forwardSize > 0 && (!bidirectional || backwardSize > 0)) {
+            double forwardTop = w.forward[w.forwardHeap[0]];
+            if (!bidirectional) {
+                if (forwardTop >= best) {
+                    break; // target settled
+                }
+            } else if (forwardTop + w.backward[w.backwardHeap[0]] >= best) {
+                break;
+            }
+            boolean forwardStep = !bidirectional || forwardSize <= backwardSize;
+            settled++;
+            if (forwardStep) {
+                int u = pop(w.forwardHeap, w.forwardPosition, w.forward, forwardSize--);
+                double du = w.forward[u];
+                for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                    int v = g.edgeTo[k];
+                    double dv = du + p.reduced(k);
+                    if (w.forwardPosition[v] >= 0 && dv < w.forward[v]) {
+                        w.touch(v, w.forward);
+                        w.forward[v] = dv;
+                        w.forwardParent[v] = u;
+                        if (w.forwardPosition[v] == 0) {
+                            w.forwardPosition[v] = ++forwardSize;
+                        }
+                        ShortestPathSolver.siftUp(w.forwardHeap, w.forwardPosition, w.forward, v,
+                                w.forwardPosition[v] - 1);
+                        double through = bidirectional ? dv + w.backward[v] : v == target ? dv : best;
+                        if (through < best) {
+                            best = through;
+                            meet = v;
+                        }
+                    }
+                }
+            } else {
+                int u = pop(w.backwardHeap, w.backwardPosition, w.backward, backwardSize--);
+                double du = w.backward[u];
+                for (int i = p.reverseOffsets[u]; i < p.reverseOffsets[u + 1]; i++) {
+                    int k = p.reverseEdges[i];
+                    int v = g.edgeFrom[k];
+                    double dv = du + p.reduced(k);
+                    if (w.backwardPosition[v] >= 0 && dv < w.backward[v]) {
+                        w.touch(v, w.backward);
+                        w.backward[v] = dv;
+                        w.backwardParent[v] = u;
+                        if (w.backwardPosition[v] == 0) {
+                            w.backwardPosition[v] = ++backwardSize;
+                        }
+                        ShortestPathSolver.siftUp(w.backwardHeap, w.backwardPosition, w.backward, v,
+                                w.backwardPosition[v] - 1);
+                        if (dv + w.forward[v] < best) {
+                            best = dv + w.forward[v];
+                            meet = v;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (meet < 0) {
+            return new Result(source, target, Double.POSITIVE_INFINITY, Collections.emptyList(), settled, computed,
+                    System.nanoTime() - start);
+        }
+        LinkedList<Integer> path = new LinkedList<>();
+        for (int v = meet; v != -1; v = w.forwardParent[v]) {
+            path.addFirst(v);
+        }
+        if (bidirectional) {
+            for (int v = w.backwardParent[meet]; v != -1; v = w.backwardParent[v]) {
+                path.addLast(v);
+            }
+        }
+        // Undo the reweighting: every inner potential cancels out
+        double distance = best - p.h[source] + p.h[target];
+        return new Result(source, target, distance, path, settled, computed, System.nanoTime() - start);
+    }
+
+    private ShortestPathResult fullSolve(GraphSnapshot g, int source) {
+        synchronized (this) {
+            fullSolves++;
+        }
+        return new ComponentSolver(g).solve(source);
+    }
+
+    /** Removes and returns the heap's minimum, marking it settled. */
+    private static int pop(int[] heap, int[] position, double[] key, int size) {
+        int u = heap[0];
+        position[u] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            ShortestPathSolver.siftDown(heap, position, key, size, last, 0);
+        }
+        return u;
+    }
+
+    /** Returns potentials for the current graph version, computing them if needed. */
+    private synchronized Potentials potentials() {
+        long version = graph.getVersion();
+        if (potentials != null && potentials.version == version) {
+            return potentials;
+        }
+        GraphSnapshot g = GraphSnapshot.of(graph);
+        double[] h = new double[g.arraySize];
+        // Old potentials are a valid start: relaxation only lowers them
+        if (potentials != null && potentials.h != null) {
+            System.arraycopy(potentials.h, 0, h, 0, Math.min(h.length, potentials.h.length));
+        }
+        int rounds = 0;
+        boolean changed = true;
+        while (changed && rounds <= g.vertices.length) {
+            changed = false;
+            rounds++;
+            for (int k = 0; k < g.edgeTo.length; k++) {
+                double dv = h[g.edgeFrom[k]] + g.edgeWeight[k];
+                if (dv < h[g.edgeTo[k]]) {
+                    h[g.edgeTo[k]] = dv;
+                    changed = true;
+                }
+            }
+        }
+        potentialComputations++;
+        potentials = new Potentials(version, g, changed ? null : h, rounds);
+        return potentials;
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Worker process for {@link DistributedBellmanFord}. Reads its partition of
+ * the vertices, with their outgoing edges, straight from an edge file, so no
+ * single process ever holds the whole graph. Relaxes its edges once per
+ * superstep, reports improved distances for vertices of other partitions
+ * grouped by owner, and answers distance queries after a run.
+ *
+ * Run standalone with {@code java PartitionWorker [port]}; the bound port is
+ * printed as {@code PORT <n>} on stdout.
+ */
+public class PartitionWorker implements Runnable, Closeable {
+    // Coordinator -> worker
+    static final byte LOAD = 1;
+    static final byte START = 2;
+    static final byte STEP = 4;
+    static final byte QUERY = 5;
+    static final byte END = 6;
+    // Worker -> coordinator
+    static final byte STEP_DONE = 11;
+    static final byte RESULT = 12;
+    static final byte LOADED = 13;
+
+    /**
+     * Edge file layout: MAGIC, VERSION, then 16-byte records
+     * {@code (int from, int to, double weight)}. A record with {@code to == -1}
+     * only declares vertex {@code from}.
+     */
+    static final int EDGE_FILE_MAGIC = 0x42464547; // "BFEG"
+    static final int EDGE_FILE_VERSION = 1;
+    static final int EDGE_RECORD_SIZE = 16;
+    /** Size of one boundary update {@code (int vertex, double distance, int predecessor)}. */
+    static final int UPDATE_SIZE = 16;
+
+    private final ServerSocketChannel server;
+
+    // Partition state, rebuilt for every session
+    private int partition;
+    private int parts;
+    private final Map<Integer, Integer> localIndex = new HashMap<>();
+    private int[] vertexIds;
+    private double[] distance;
+    private int[] predecessor;
+    private int vertexCount;
+    private int[] edgeFrom;
+    private int[] edgeTo; // local index, or -(slot + 1) for a remote vertex
+    private double[] edgeWeight;
+    private int edgeCount;
+    private final Map<Integer, Integer> remoteSlot = new HashMap<>();
+    private int[] remoteIds;
+    private int remoteCount;
+    private double[] bestSent;
+    private int[] bestSentPred;
+    private boolean[] dirty;
+    private int[] dirtySlots;
+
+    /** Creates a worker listening on {@code server}. */
+    public PartitionWorker(ServerSocketChannel server) {
+        this.server = server;
+    }
+
+    /** Opens a worker on a local port (0 for any free port). */
+    public static PartitionWorker bind(int port) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", port));
+        return new PartitionWorker(server);
+    }
+
+    /** Returns the address coordinators should connect to. */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /** Serves coordinator sessions one at a time until the worker is closed. */
+    @Override
+    public void run() {
+        while (server.isOpen()) {
+            try (SocketChannel channel = server.accept()) {
+                serve(channel);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Partition worker session failed: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void serve(SocketChannel channel) throws IOException {
+        while (true) {
+            ByteBuffer in = readFrame(channel);
+            byte type = in.get();
+            switch (type) {
+                case LOAD:
+                    writeFrame(channel, load(in));
+                    break;
+                case START:
+                    start();
+                    break;
+                case STEP:
+                    writeFrame(channel, step(in));
+                    break;
+                case QUERY:
+                    writeFrame(channel, query(in));
+                    break;
+                case END:
+                    return;
+                default:
+                    throw new IOException("Unknown message type " + type);
+            }
+        }
+    }
+
+    /** Reads this worker's partition from the edge file named in the message. */
+    private ByteBuffer load(ByteBuffer in) throws IOException {
+        partition = in.getInt();
+        parts = in.getInt();
+        byte[] name = new byte[in.remaining()];
+        in.get(name);
+        Path file = Paths.get(new String(name, StandardCharsets.UTF_8));
+        localIndex.clear();
+        remoteSlot.clear();
+        vertexIds = new int[16];
+        vertexCount = 0;
+        edgeFrom = new int[16];
+        edgeTo = new int[16];
+        edgeWeight = new double[16];
+        edgeCount = 0;
+        remoteIds = new int[16];
+        remoteCount = 0;
+        distance = null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(EDGE_RECORD_SIZE << 12);
+            buffer.limit(8);
+            readFully(channel, buffer);
+            buffer.flip();
+            if (buffer.getInt() != EDGE_FILE_MAGIC || buffer.getInt() != EDGE_FILE_VERSION) {
+                throw new IOException("Not a partition edge file: " + file);
+            }
+            buffer.clear();
+            boolean end = false;
+            while (!end) {
+                end = channel.read(buffer) < 0;
+                buffer.flip();
+                while (buffer.remaining() >= EDGE_RECORD_SIZE) {
+                    int from = buffer.getInt();
+                    int to = buffer.getInt();
+                    double weight = buffer.getDouble();
+                    addRecord(from, to, weight);
+                }
+                if (end && buffer.hasRemaining()) {
+                    throw new EOFException("Truncated edge file: " + file);
+                }
+                buffer.compact();
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(1 + 4 + 8);
+        out.put(LOADED).putInt(vertexCount).putLong(edgeCount);
+        out.flip();
+        return out;
+    }
+
+    private void addRecord(int from, int to, double weight) {
+        boolean ownsFrom = owner(from) == partition;
+        if (ownsFrom) {
+            local(from);
+        }
+        if (to < 0) {
+            return;
+        }
+        if (owner(to) == partition) {
+            local(to);
+        }
+        if (!ownsFrom) {
+            return;
+        }
+        if (edgeCount == edgeTo.length) {
+            edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+            edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            edgeWeight = Arrays.copyOf(edgeWeight, edgeCount * 2);
+        }
+        edgeFrom[edgeCount] = localIndex.get(from);
+        edgeTo[edgeCount] = owner(to) == partition ? localIndex.get(to) : -(remote(to) + 1);
+        edgeWeight[edgeCount] = weight;
+        edgeCount++;
+    }
+
+    private void local(int v) {
+        if (!localIndex.containsKey(v)) {
+            if (vertexCount == vertexIds.length) {
+                vertexIds = Arrays.copyOf(vertexIds, vertexCount * 2);
+            }
+            localIndex.put(v, vertexCount);
+            vertexIds[vertexCount++] = v;
+        }
+    }
+
+    private int remote(int v) {
+        Integer slot = remoteSlot.get(v);
+        if (slot == null) {
+            slot = remoteCount++;
+            if (slot == remoteIds.length) {
+                remoteIds = Arrays.copyOf(remoteIds, slot * 2);
+            }
+            remoteIds[slot] = v;
+            remoteSlot.put(v, slot);
+        }
+        return slot;
+    }
+
+    private int owner(int v) {
+        return Math.floorMod(v, parts);
+    }
+
+    /** Resets distances for a new run. */
+    private void start() {
+        distance = new double[vertexCount];
+        predecessor = new int[vertexCount];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+        bestSent = new double[remoteCount];
+        bestSentPred = new int[remoteCount];
+        dirty = new boolean[remoteCount];
+        dirtySlots = new int[remoteCount];
+        Arrays.fill(bestSent, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Applies incoming boundary updates, relaxes every local edge once and
+     * replies with the changed flag, the number of updates for each
+     * partition, and the updates grouped by partition.
+     */
+    private ByteBuffer step(ByteBuffer in) {
+        boolean changed = false;
+        int updates = in.getInt();
+        for (int i = 0; i < updates; i++) {
+            Integer local = localIndex.get(in.getInt());
+            double d = in.getDouble();
+            int pred = in.getInt();
+            if (local != null && d < distance[local]) {
+                distance[local] = d;
+                predecessor[local] = pred;
+                changed = true;
+            }
+        }
+        int dirtyCount = 0;
+        int[] perPart = new int[parts];
+        for (int i = 0; i < edgeCount; i++) {
+            double d = distance[edgeFrom[i]] + edgeWeight[i];
+            int to = edgeTo[i];
+            if (to >= 0) {
+                if (d < distance[to]) {
+                    distance[to] = d;
+                    predecessor[to] = vertexIds[edgeFrom[i]];
+                    changed = true;
+                }
+            } else {
+                int slot = -to - 1;
+                if (d < bestSent[slot]) {
+                    bestSent[slot] = d;
+                    bestSentPred[slot] = vertexIds[edgeFrom[i]];
+                    if (!dirty[slot]) {
+                        dirty[slot] = true;
+                        dirtySlots[dirtyCount++] = slot;
+                        perPart[owner(remoteIds[slot])]++;
+                    }
+                }
+            }
+        }
+        int header = 1 + 1 + 4 * parts;
+        ByteBuffer out = ByteBuffer.allocate(header + dirtyCount * UPDATE_SIZE);
+        out.put(STEP_DONE).put((byte) (changed ? 1 : 0));
+        int[] position = new int[parts];
+        for (int p = 0, offset = header; p < parts; p++) {
+            out.putInt(perPart[p]);
+            position[p] = offset;
+            offset += perPart[p] * UPDATE_SIZE;
+        }
+        for (int i = 0; i < dirtyCount; i++) {
+            int slot = dirtySlots[i];
+            dirty[slot] = false;
+            int p = owner(remoteIds[slot]);
+            out.putInt(position[p], remoteIds[slot]);
+            out.putDouble(position[p] + 4, bestSent[slot]);
+            out.putInt(position[p] + 12, bestSentPred[slot]);
+            position[p] += UPDATE_SIZE;
+        }
+        out.position(out.capacity());
+        out.flip();
+        return out;
+    }
+
+    /** Answers distance and predecessor for each requested vertex (+infinity, -1 if unknown). */
+    private ByteBuffer query(ByteBuffer in) {
+        int count = in.getInt();
+        ByteBuffer out = ByteBuffer.allocate(1 + 4 + count * 12);
+        out.put(RESULT).putInt(count);
+        for (int i = 0; i < count; i++) {
+            Integer local = localIndex.get(in.getInt());
+            boolean known = local != null && distance != null;
+            out.putDouble(known ? distance[local] : Double.POSITIVE_INFINITY).putInt(known ? predecessor[local] : -1);
+        }
+        out.flip();
+        return out;
+    }
+
+    /** Writes a length-prefixed frame. */
+    static void writeFrame(SocketChannel channel, ByteBuffer payload) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(payload.remaining());
+        header.flip();
+        while (header.hasRemaining() || payload.hasRemaining()) {
+            channel.write(new ByteBuffer[] { header, payload });
+        }
+    }
+
+    /** Reads one length-prefixed frame. */
+    static ByteBuffer readFrame(SocketChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        readFully(channel, header);
+        ByteBuffer payload = ByteBuffer.allocate(header.getInt(0));
+        readFully(channel, payload);
+        payload.flip();
+        return payload;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try (PartitionWorker worker = bind(port)) {
+            System.out.println("PORT " + worker.getAddress().getPort());
+            System.out.flush();
+            worker.run();
+        }
+    }
+}
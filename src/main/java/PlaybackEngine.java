@@ -0,0 +1,98 @@
+import javafx.animation.AnimationTimer;
+
+/**
+ * Frame-driven playback for {@link BellmanFordVisualizer}. Each frame
+ * advances by a configurable number of steps (fractions accumulate across
+ * frames) and only the last step reached is rendered, so playback speed is
+ * independent of trace length and render cost.
+ */
+public class PlaybackEngine {
+    public static final double MIN_STEPS_PER_FRAME = 0.1;
+    public static final double MAX_STEPS_PER_FRAME = 10_000;
+
+    /** What playback moves through; implemented by the visualizer. */
+    public interface Target {
+        /** Returns the number of steps. */
+        int getStepCount();
+
+        /** Returns the index of the next step to show. */
+        int getCurrentStep();
+
+        /** Shows step {@code index}; the next step to show becomes {@code index + 1}. */
+        void seek(int index);
+    }
+
+    private final Target target;
+    private AnimationTimer timer; // Created on first start, as it needs the JavaFX toolkit
+    private double stepsPerFrame = MIN_STEPS_PER_FRAME;
+    private double accumulated;
+    private boolean playing;
+
+    /** Creates a stopped engine driving {@code target} at the slowest speed. */
+    public PlaybackEngine(Target target) {
+        this.target = target;
+    }
+
+    /** Sets the speed, clamped to [0.1, 10000] steps per frame. */
+    public void setStepsPerFrame(double stepsPerFrame) {
+        this.stepsPerFrame = Math.max(MIN_STEPS_PER_FRAME, Math.min(MAX_STEPS_PER_FRAME, stepsPerFrame));
+    }
+
+    /** Returns the speed in steps per frame. */
+    public double getStepsPerFrame() {
+        return stepsPerFrame;
+    }
+
+    /** Returns true while playback is running. */
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /** Starts playing from the target's current step, one frame per pulse. */
+    public void start() {
+        accumulated = 0;
+        playing = true;
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    frame();
+                }
+            };
+        }
+        timer.start();
+    }
+
+    /** Stops playing; the target stays at the last step shown. */
+    public void stop() {
+        playing = false;
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Advances by one frame: seeks to the last step reached, if any, and
+     * stops at the end of the steps.
+     */
+    void frame() {
+        int count = target.getStepCount();
+        int position = target.getCurrentStep();
+        if (position >= count) {
+            stop();
+            return;
+        }
+        accumulated += stepsPerFrame;
+        if (accumulated < 1) {
+            return;
+        }
+        int advance = (int) accumulated;
+        accumulated -= advance;
+        // Intermediate steps are skipped; only the latest state is drawn
+        int next = (int) Math.min((long) position + advance, count);
+        target.seek(next - 1);
+        if (next >= count) {
+            stop();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.*;
+
+/**
+ * Immutable single-source shortest path result: distances and predecessors
+ * indexed by vertex id, as returned by {@link BellmanFordAlgorithm}.
+ */
+public final class ShortestPathResult {
+    private final int source;
+    private final double[] distance;
+    private final int[] predecessor;
+    private final boolean noNegativeCycle;
+
+    /** Wraps the given arrays; callers hand over ownership. */
+    public ShortestPathResult(int source, double[] distance, int[] predecessor, boolean noNegativeCycle) {
+        this.source = source;
+        this.distance = distance;
+        this.predecessor = predecessor;
+        this.noNegativeCycle = noNegativeCycle;
+    }
+
+    /** Returns the source vertex. */
+    public int getSource() {
+        return source;
+    }
+
+    /** Returns false if a negative cycle is reachable from the source. */
+    public boolean hasNoNegativeCycle() {
+        return noNegativeCycle;
+    }
+
+    /** Returns the distance to {@code v} (infinity if unknown or unreachable). */
+    public double getDistance(int v) {
+        return v >= 0 && v < distance.length ? distance[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns a copy of the distances. */
+    public double[] getDistances() {
+        return Arrays.copyOf(distance, distance.length);
+    }
+
+    /** Returns a copy of the predecessor array. */
+    public int[] getPredecessors() {
+        return Arrays.copyOf(predecessor, predecessor.length);
+    }
+
+    /**
+     * Returns the path from the source to {@code v}, source first, or an empty
+     * list if {@code v} is unreachable or its path runs into a cycle.
+     */
+    public List<Integer> getPath(int v) {
+        if (getDistance(v) == Double.POSITIVE_INFINITY) {
+            return Collections.emptyList();
+        }
+        LinkedList<Integer> path = new LinkedList<>();
+        for (int u = v; u != -1; u = predecessor[u]) {
+            path.addFirst(u);
+            if (path.size() > predecessor.length) {
+                return Collections.emptyList();
+            }
+        }
+        return path.getFirst() == source ? path : Collections.emptyList();
+    }
+}
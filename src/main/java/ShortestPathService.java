@@ -0,0 +1,216 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers concurrent single-source queries against one shared
+ * {@link GraphSnapshot}.
+ *
+ * Concurrent queries for the same source share one solve. Distinct solves
+ * in flight are capped; beyond the cap new queries fail fast with
+ * {@link RejectedExecutionException} so callers can back off. Solver buffers
+ * are pooled and reused across queries. Solves run on virtual threads when
+ * the runtime has them (Java 21+), otherwise on a pool sized to the CPUs.
+ */
+public class ShortestPathService implements AutoCloseable {
+    private final GraphSnapshot graph;
+    private final Semaphore permits;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Map<Integer, CompletableFuture<ShortestPathResult>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<Buffers> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicLong solves = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /** Per-solve working arrays, reused through the pool. */
+    private static class Buffers {
+        final double[] distance;
+        final int[] predecessor;
+        final int[] queue;
+        final boolean[] inQueue;
+        final int[] enqueued;
+
+        Buffers(int size) {
+            distance = new double[size];
+            predecessor = new int[size];
+            queue = new int[size];
+            inQueue = new boolean[size];
+            enqueued = new int[size];
+        }
+    }
+
+    /**
+     * Creates a service that allows at most {@code maxInFlight} distinct
+     * solves at once, on its own executor.
+     */
+    public ShortestPathService(GraphSnapshot graph, int maxInFlight) {
+        this(graph, maxInFlight, null);
+    }
+
+    /** Creates a service that runs solves on {@code executor}. */
+    public ShortestPathService(GraphSnapshot graph, int maxInFlight, Executor executor) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be >= 1");
+        }
+        this.graph = graph;
+        this.permits = new Semaphore(maxInFlight);
+        this.ownedExecutor = executor == null ? newExecutor() : null;
+        this.executor = executor == null ? ownedExecutor : executor;
+    }
+
+    /** Uses virtual threads when available without requiring Java 21 to build. */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "shortest-path-query");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** Queries all distances from {@code source}. */
+    public CompletableFuture<ShortestPathResult> query(int source) {
+        if (!graph.hasVertex(source)) {
+            CompletableFuture<ShortestPathResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("Unknown source vertex " + source));
+            return failed;
+        }
+        CompletableFuture<ShortestPathResult> created = new CompletableFuture<>();
+        CompletableFuture<ShortestPathResult> existing = inFlight.putIfAbsent(source, created);
+        if (existing != null) {
+            merged.incrementAndGet();
+            // A dependent future, so one caller cancelling does not affect others
+            return existing.thenApply(r -> r);
+        }
+        if (!permits.tryAcquire()) {
+            inFlight.remove(source, created);
+            rejected.incrementAndGet();
+            created.completeExceptionally(new RejectedExecutionException("Too many queries in flight"));
+            return created;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    ShortestPathResult result = solve(source);
+                    inFlight.remove(source, created);
+                    created.complete(result);
+                } catch (Throwable t) {
+                    inFlight.remove(source, created);
+                    created.completeExceptionally(t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(source, created);
+            permits.release();
+            rejected.incrementAndGet();
+            created.completeExceptionally(e);
+        }
+        return created.thenApply(r -> r);
+    }
+
+    /**
+     * Queries the distances from {@code source} to the given targets
+     * (infinity for unknown or unreachable ones). This only projects the
+     * result of {@link #query(int)}: the full solve runs, shared with
+     * concurrent queries for the same source, since with negative edges no
+     * distance is final before the queue drains. Use {@link #query(int)} to
+     * tell whether a negative cycle was found.
+     */
+    public CompletableFuture<Map<Integer, Double>> query(int source, int... targets) {
+        return query(source).thenApply(result -> {
+            Map<Integer, Double> distances = new LinkedHashMap<>();
+            for (int t : targets) {
+                distances.put(t, result.getDistance(t));
+            }
+            return distances;
+        });
+    }
+
+    /** Returns the number of solves actually run. */
+    public long getSolveCount() {
+        return solves.get();
+    }
+
+    /** Returns the number of queries merged into an in-flight solve. */
+    public long getMergedCount() {
+        return merged.get();
+    }
+
+    /** Returns the number of queries rejected for overload. */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Queue-based Bellman-Ford (FIFO) over the snapshot using pooled buffers.
+     * A vertex entering the queue more than |V| times means a negative cycle.
+     */
+    private ShortestPathResult solve(int source) {
+        solves.incrementAndGet();
+        Buffers b = pool.poll();
+        if (b == null) {
+            b = new Buffers(graph.arraySize);
+        }
+        try {
+            int n = graph.arraySize;
+            double[] distance = b.distance;
+            int[] predecessor = b.predecessor;
+            int[] queue = b.queue;
+            boolean[] inQueue = b.inQueue;
+            int[] enqueued = b.enqueued;
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            Arrays.fill(predecessor, -1);
+            Arrays.fill(inQueue, false);
+            Arrays.fill(enqueued, 0);
+            distance[source] = 0;
+            // Ring buffer: each vertex is in the queue at most once
+            int head = 0, size = 1;
+            queue[0] = source;
+            inQueue[source] = true;
+            enqueued[source] = 1;
+            int limit = graph.getVertexCount();
+            boolean noNegativeCycle = true;
+            while (size > 0 && noNegativeCycle) {
+                int u = queue[head];
+                head = head + 1 == n ? 0 : head + 1;
+                size--;
+                inQueue[u] = false;
+                double du = distance[u];
+                for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+                    int v = graph.edgeTo[i];
+                    double d = du + graph.edgeWeight[i];
+                    if (d < distance[v]) {
+                        distance[v] = d;
+                        predecessor[v] = u;
+                        if (!inQueue[v]) {
+                            if (++enqueued[v] > limit) {
+                                noNegativeCycle = false;
+                            }
+                            inQueue[v] = true;
+                            int tail = head + size;
+                            queue[tail >= n ? tail - n : tail] = v;
+                            size++;
+                        }
+                    }
+                }
+            }
+            return new ShortestPathResult(source, Arrays.copyOf(distance, n), Arrays.copyOf(predecessor, n),
+                    noNegativeCycle);
+        } finally {
+            pool.offer(b);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+import java.util.*;
+
+/**
+ * Single-source shortest paths that picks the cheapest correct algorithm.
+ * One scan of the part of the graph reachable from the source finds
+ * whether it has negative edges and cycles, then:
+ * <ul>
+ * <li>no cycles: relaxation in topological order, O(V + E);</li>
+ * <li>cycles but no negative edges: Dijkstra with a binary heap,
+ * O(E log V);</li>
+ * <li>otherwise: Bellman-Ford, O(VE), with negative cycle detection.</li>
+ * </ul>
+ * All engines return a {@link ShortestPathResult}; {@link #getLastReport()}
+ * tells which one ran and why.
+ *
+ * Works on an immutable {@link GraphSnapshot}; calls to {@link #solve} may
+ * run concurrently, but the last report is then that of any of them.
+ */
+public class ShortestPathSolver {
+    /** The algorithm used for a query. */
+    public enum Engine {
+        DAG, DIJKSTRA, BELLMAN_FORD
+    }
+
+    /** Which engine answered a query and what the analysis found. */
+    public static final class Report {
+        public final Engine engine;
+        public final String reason;
+        public final int reachableVertices;
+        public final long reachableEdges;
+        public final long analysisNanos;
+        public final long solveNanos;
+
+        Report(Engine engine, String reason, int reachableVertices, long reachableEdges, long analysisNanos,
+                long solveNanos) {
+            this.engine = engine;
+            this.reason = reason;
+            this.reachableVertices = reachableVertices;
+            this.reachableEdges = reachableEdges;
+            this.analysisNanos = analysisNanos;
+            this.solveNanos = solveNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s): %d vertices, %d edges, analysis %.3f ms, solve %.3f ms", engine, reason,
+                    reachableVertices, reachableEdges, analysisNanos / 1e6, solveNanos / 1e6);
+        }
+    }
+
+    private final GraphSnapshot snapshot;
+    private Engine forcedEngine;
+    private volatile Report lastReport;
+
+    /** Creates a solver for the current state of {@code graph}. */
+    public ShortestPathSolver(Graph graph) {
+        this(GraphSnapshot.of(graph));
+    }
+
+    public ShortestPathSolver(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Always uses {@code engine} (null for automatic choice). Forcing an
+     * engine the graph does not allow makes {@link #solve} throw.
+     */
+    public void setEngine(Engine engine) {
+        this.forcedEngine = engine;
+    }
+
+    /** Returns the report of the last {@link #solve}, or null. */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Computes shortest paths from {@code source}.
+     *
+     * @throws IllegalArgumentException if {@code source} is not a vertex
+     */
+    public ShortestPathResult solve(int source) {
+        long start = System.nanoTime();
+        GraphSnapshot g = snapshot;
+        if (!g.hasVertex(source)) {
+            throw new IllegalArgumentException("Unknown source vertex " + source);
+        }
+        int size = g.arraySize;
+        double[] distance = new double[size];
+        int[] predecessor = new int[size];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(predecessor, -1);
+        distance[source] = 0;
+
+        // Breadth-first scan: reachable vertices, in-degrees, negative edges
+        int[] reached = new int[g.vertices.length];
+        int[] indegree = new int[size];
+        boolean[] seen = new boolean[size];
+        int count = 0;
+        long edges = 0;
+        boolean negative = false;
+        seen[source] = true;
+        reached[count++] = source;
+        for (int head = 0; head < count; head++) {
+            int u = reached[head];
+            for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                int v = g.edgeTo[k];
+                negative |= g.edgeWeight[k] < 0;
+                indegree[v]++;
+                edges++;
+                if (!seen[v]) {
+                    seen[v] = true;
+                    reached[count++] = v;
+                }
+            }
+        }
+
+        // Kahn's algorithm doubles as the DAG engine: relax in topological
+        // order, and if it stalls the reachable part has a cycle.
+        Engine engine = forcedEngine;
+        boolean dag = false;
+        if (engine == null || engine == Engine.DAG) {
+            dag = relaxInTopologicalOrder(source, count, indegree, distance, predecessor);
+            if (!dag) {
+                if (engine == Engine.DAG) {
+                    throw new IllegalArgumentException("Graph reachable from " + source + " has a cycle");
+                }
+                Arrays.fill(distance, Double.POSITIVE_INFINITY);
+                Arrays.fill(predecessor, -1);
+                distance[source] = 0;
+            }
+        }
+        long analyzed = System.nanoTime();
+        String reason;
+        boolean noNegativeCycle = true;
+        if (dag) {
+            engine = Engine.DAG;
+            reason = forcedEngine != null ? "forced" : "acyclic";
+        } else if (engine == Engine.DIJKSTRA || engine == null && !negative) {
+            if (negative) {
+                throw new IllegalArgumentException("Graph reachable from " + source + " has negative edges");
+            }
+            engine = Engine.DIJKSTRA;
+            reason = forcedEngine != null ? "forced" : "cycles, no negative edges";
+            dijkstra(source, count, distance, predecessor);
+        } else {
+            reason = forcedEngine != null ? "forced" : "cycles and negative edges";
+            engine = Engine.BELLMAN_FORD;
+            noNegativeCycle = bellmanFord(reached, count, distance, predecessor);
+        }
+        lastReport = new Report(engine, reason, count, edges, analyzed - start, System.nanoTime() - analyzed);
+        return new ShortestPathResult(source, distance, predecessor, noNegativeCycle);
+    }
+
+    private boolean relaxInTopologicalOrder(int source, int count, int[] indegree, double[] distance,
+            int[] predecessor) {
+        GraphSnapshot g = snapshot;
+        if (indegree[source] != 0) {
+            return false; // an edge back into the source closes a cycle
+        }
+        int[] queue = new int[count];
+        int tail = 0;
+        queue[tail++] = source;
+        for (int head = 0; head < tail; head++) {
+            int u = queue[head];
+            double du = distance[u];
+            for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                int v = g.edgeTo[k];
+                if (du + g.edgeWeight[k] < distance[v]) {
+                    distance[v] = du + g.edgeWeight[k];
+                    predecessor[v] = u;
+                }
+                if (--indegree[v] == 0) {
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return tail == count;
+    }
+
+    /** Dijkstra with an indexed binary heap keyed by distance. */
+    private void dijkstra(int source, int count, double[] distance, int[] predecessor) {
+        GraphSnapshot g = snapshot;
+        int[] heap = new int[count];
+        int[] position = new int[distance.length]; // index in heap + 1; 0 = not queued, -1 = settled
+        int size = 0;
+        heap[size++] = source;
+        position[source] = 1;
+        while (size > 0) {
+            int u = heap[0];
+            position[u] = -1;
+            int last = heap[--size];
+            if (size > 0) {
+                siftDown(heap, position, distance, size, last, 0);
+            }
+            double du = distance[u];
+            for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                int v = g.edgeTo[k];
+                if (position[v] >= 0 && du + g.edgeWeight[k] < distance[v]) {
+                    distance[v] = du + g.edgeWeight[k];
+                    predecessor[v] = u;
+                    if (position[v] == 0) {
+                        position[v] = ++size;
+                    }
+                    siftUp(heap, position, distance, v, position[v] - 1);
+                }
+            }
+        }
+    }
+
+    /** Indexed heap helpers, also used by {@link PairQuerySolver}; positions are heap index + 1. */
+    static void siftUp(int[] heap, int[] position, double[] key, int v, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (key[p] <= key[v]) {
+                break;
+            }
+            heap[i] = p;
+            position[p] = i + 1;
+            i = parent;
+        }
+        heap[i] = v;
+        position[v] = i + 1;
+    }
+
+    static void siftDown(int[] heap, int[] position, double[] key, int size, int v, int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) {
+                child++;
+            }
+            int c = heap[child];
+            if (key[v] <= key[c]) {
+                break;
+            }
+            heap[i] = c;
+            position[c] = i + 1;
+            i = child;
+        }
+        heap[i] = v;
+        position[v] = i + 1;
+    }
+
+    /**
+     * Rounds over the reachable vertices until nothing changes, at most
+     * |reachable| - 1 of them; returns false if a negative cycle remains.
+     */
+    private boolean bellmanFord(int[] reached, int count, double[] distance, int[] predecessor) {
+        GraphSnapshot g = snapshot;
+        for (int round = 1; round < count; round++) {
+            boolean changed = false;
+            for (int i = 0; i < count; i++) {
+                int u = reached[i];
+                for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                    int v = g.edgeTo[k];
+                    if (distance[u] + g.edgeWeight[k] < distance[v]) {
+                        distance[v] = distance[u] + g.edgeWeight[k];
+                        predecessor[v] = u;
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return true;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int u = reached[i];
+            for (int k = g.offsets[u]; k < g.offsets[u + 1]; k++) {
+                if (distance[u] + g.edgeWeight[k] < distance[g.edgeTo[k]]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
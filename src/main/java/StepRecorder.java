@@ -0,0 +1,32 @@
+import java.util.*;
+
+/**
+ * Receives the steps of a Bellman-Ford run as they happen.
+ * {@link BellmanFordAlgorithm} calls {@link #begin} once, {@link #beginRound}
+ * before each round, {@link #record} after every edge it examines, and
+ * {@link #finish} at the end.
+ */
+public interface StepRecorder {
+    /**
+     * Starts a run. {@code distance} and {@code predecessor} are the solver's
+     * live arrays: they reflect the state after each recorded step and must
+     * be copied to be retained.
+     */
+    void begin(Graph graph, int source, List<Graph.Edge> edges, double[] distance, int[] predecessor);
+
+    /**
+     * Marks the start of round {@code iteration}; the live arrays hold the
+     * state before its first step. Does nothing by default.
+     */
+    default void beginRound(int iteration) {
+    }
+
+    /**
+     * Records that the edge at {@code edgeIndex} was examined in
+     * {@code iteration}; {@code newDistance} is its target's distance after.
+     */
+    void record(int iteration, int edgeIndex, boolean relaxed, double newDistance);
+
+    /** Ends the run. */
+    void finish();
+}
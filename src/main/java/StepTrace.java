@@ -0,0 +1,581 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * In-memory step trace stored as primitive arrays (struct of arrays):
+ * iteration, edge index, relaxed flag and new target distance per step.
+ * Recording a step is four array stores; full {@link BellmanFordAlgorithm.Step}
+ * snapshots are rebuilt on access from per-segment checkpoints.
+ *
+ * Steps are kept in fixed-length segments, each starting with a checkpoint
+ * of the distance and predecessor arrays. A segment is at least as long as
+ * those arrays, so checkpoints cost at most about 12 bytes per step and
+ * materializing a step replays at most one segment. With a capacity set the
+ * trace acts as a ring buffer that drops its oldest segments.
+ *
+ * With a memory budget set, the oldest segments are compressed and spilled
+ * to a temporary file once resident segments exceed the budget, and read
+ * back on access. Without a spill directory (or once spilling fails) the
+ * oldest segments are dropped instead and only the state at the start of
+ * each round is kept, see {@link #getCheckpoints()}; if those outgrow the
+ * budget too, every other one is discarded. The spill file is deleted by
+ * {@link #clear()}, the next recording, or {@link #close()}.
+ */
+public class StepTrace implements StepRecorder, Closeable {
+    private static final int MIN_SEGMENT_LENGTH = 4096;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int BYTES_PER_STEP = 4 + 4 + 1 + 8;
+
+    /** How much of a step's detail is still available. */
+    public enum Detail {
+        /** Held in memory. */
+        FULL,
+        /** Full detail, read back from the spill file on access. */
+        SPILLED
+    }
+
+    /**
+     * The solver's state at the start of a round, kept for rounds whose steps
+     * were dropped by the memory budget. The arrays must not be modified.
+     */
+    public static final class Checkpoint {
+        public final int iteration;
+        /** Absolute number of the round's first step. */
+        public final long step;
+        public final double[] distance;
+        public final int[] predecessor;
+
+        Checkpoint(int iteration, long step, double[] distance, int[] predecessor) {
+            this.iteration = iteration;
+            this.step = step;
+            this.distance = Arrays.copyOf(distance, distance.length);
+            this.predecessor = Arrays.copyOf(predecessor, predecessor.length);
+        }
+
+        long residentBytes() {
+            return 12L * distance.length;
+        }
+    }
+
+    /** A run of consecutive steps and the state before the first of them. */
+    private static class Segment {
+        final long start;
+        double[] checkpointDistance;
+        int[] checkpointPredecessor;
+        int[] iteration = new int[INITIAL_CAPACITY];
+        int[] edgeIndex = new int[INITIAL_CAPACITY];
+        boolean[] relaxed = new boolean[INITIAL_CAPACITY];
+        double[] newDistance = new double[INITIAL_CAPACITY];
+        int size;
+        Detail detail = Detail.FULL;
+        long spillOffset;
+        int spillLength;
+        int rawLength;
+
+        Segment(long start, double[] distance, int[] predecessor) {
+            this.start = start;
+            this.checkpointDistance = Arrays.copyOf(distance, distance.length);
+            this.checkpointPredecessor = Arrays.copyOf(predecessor, predecessor.length);
+        }
+
+        void grow(int limit) {
+            int capacity = Math.min(limit, iteration.length * 2);
+            iteration = Arrays.copyOf(iteration, capacity);
+            edgeIndex = Arrays.copyOf(edgeIndex, capacity);
+            relaxed = Arrays.copyOf(relaxed, capacity);
+            newDistance = Arrays.copyOf(newDistance, capacity);
+        }
+
+        long residentBytes() {
+            long bytes = iteration == null ? 0 : (long) iteration.length * BYTES_PER_STEP;
+            return bytes + (checkpointDistance == null ? 0 : 12L * checkpointDistance.length);
+        }
+    }
+
+    private long capacity;
+    private long memoryBudget; // 0 = unlimited
+    private Path spillDirectory;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final List<Segment> index = new ArrayList<>(); // random access over segments
+    private int indexOffset; // segments dropped from the front of index
+    private List<Graph.Edge> edges = Collections.emptyList();
+    private double[] liveDistance;
+    private int[] livePredecessor;
+    private int segmentLength = MIN_SEGMENT_LENGTH;
+    private Segment current;
+    private long stepCount;
+    private long residentBytes;
+    private long spilledSteps;
+    private long budgetDroppedSteps;
+    private boolean spillFailed;
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+    private Path spillFile;
+    private FileChannel spillChannel;
+    private Segment loaded; // most recently read back spilled segment
+
+    /** Creates an unbounded trace. */
+    public StepTrace() {
+        this(0);
+    }
+
+    /**
+     * Creates a trace that keeps roughly the last {@code capacity} steps
+     * (rounded up to whole segments); 0 means unbounded.
+     */
+    public StepTrace(long capacity) {
+        setCapacity(capacity);
+    }
+
+    /** Sets the ring-buffer capacity in steps (0 for unbounded); applies from the next run. */
+    public void setCapacity(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Limits the memory held by recorded segments to about {@code bytes}
+     * (0 for no limit). Older segments are spilled to a temporary file in
+     * {@code spillDirectory}, or dropped down to per-round checkpoints if it
+     * is null. The newest segment always stays in memory.
+     */
+    public void setMemoryBudget(long bytes, Path spillDirectory) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("bytes must be >= 0");
+        }
+        this.memoryBudget = bytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public void begin(Graph graph, int source, List<Graph.Edge> edges, double[] distance, int[] predecessor) {
+        clear();
+        this.edges = edges;
+        this.liveDistance = distance;
+        this.livePredecessor = predecessor;
+        this.segmentLength = Math.max(MIN_SEGMENT_LENGTH, distance.length);
+    }
+
+    @Override
+    public void beginRound(int iteration) {
+        if (memoryBudget > 0 && (spillDirectory == null || spillFailed)) {
+            Checkpoint c = new Checkpoint(iteration, stepCount, liveDistance, livePredecessor);
+            checkpoints.add(c);
+            residentBytes += c.residentBytes();
+            enforceBudget();
+        }
+    }
+
+    @Override
+    public void record(int iteration, int edgeIndex, boolean relaxed, double newDistance) {
+        Segment s = current;
+        if (s == null || s.size == segmentLength) {
+            s = startSegment();
+        } else if (s.size == s.iteration.length) {
+            residentBytes -= s.residentBytes();
+            s.grow(segmentLength);
+            residentBytes += s.residentBytes();
+        }
+        int i = s.size++;
+        s.iteration[i] = iteration;
+        s.edgeIndex[i] = edgeIndex;
+        s.relaxed[i] = relaxed;
+        s.newDistance[i] = newDistance;
+        stepCount++;
+    }
+
+    @Override
+    public void finish() {
+        liveDistance = null;
+        livePredecessor = null;
+    }
+
+    /** Discards all recorded steps and deletes the spill file. */
+    public void clear() {
+        segments.clear();
+        index.clear();
+        indexOffset = 0;
+        current = null;
+        loaded = null;
+        stepCount = 0;
+        residentBytes = 0;
+        spilledSteps = 0;
+        budgetDroppedSteps = 0;
+        spillFailed = false;
+        checkpoints.clear();
+        edges = Collections.emptyList();
+        closeSpillFile();
+    }
+
+    /**
+     * Drops all steps and deletes the spill file, if any. The trace can
+     * still record again afterwards.
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+
+    /** Returns the file older steps are spilled to, or null if none is open. */
+    public Path getSpillFile() {
+        return spillFile;
+    }
+
+    /** Returns the absolute number of the oldest retained step. */
+    public long getFirstStep() {
+        return segments.isEmpty() ? stepCount : segments.peekFirst().start;
+    }
+
+    /** Returns the number of retained steps. */
+    public long size() {
+        return stepCount - getFirstStep();
+    }
+
+    /** Returns the total number of steps recorded, including dropped ones. */
+    public long getRecordedCount() {
+        return stepCount;
+    }
+
+    /** Returns the bytes currently held in memory by recorded segments. */
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /** Returns how many retained steps live in the spill file. */
+    public long getSpilledCount() {
+        return spilledSteps;
+    }
+
+    /**
+     * Returns how many of the steps before {@link #getFirstStep()} were
+     * dropped by the memory budget rather than the capacity.
+     */
+    public long getBudgetDroppedCount() {
+        return budgetDroppedSteps;
+    }
+
+    /**
+     * Returns the round checkpoints kept for steps dropped by the memory
+     * budget, oldest first. Empty unless a budget without spill directory
+     * (or a failed spill) dropped steps or may do so.
+     */
+    public List<Checkpoint> getCheckpoints() {
+        return Collections.unmodifiableList(checkpoints);
+    }
+
+    /**
+     * Returns the latest checkpoint at or before absolute step
+     * {@code step}, or null if there is none.
+     */
+    public Checkpoint getCheckpoint(long step) {
+        int lo = 0, hi = checkpoints.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (checkpoints.get(mid).step <= step) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? null : checkpoints.get(lo - 1);
+    }
+
+    /** Returns the detail available for retained step {@code i}. */
+    public Detail getDetail(long i) {
+        return segmentFor(i).detail;
+    }
+
+    /** Returns the iteration of retained step {@code i} without materializing it. */
+    public int iterationAt(long i) {
+        Segment s = readable(segmentFor(i));
+        return s.iteration[offsetIn(s, i)];
+    }
+
+    /** Returns whether retained step {@code i} relaxed its edge. */
+    public boolean isRelaxed(long i) {
+        Segment s = readable(segmentFor(i));
+        return s.relaxed[offsetIn(s, i)];
+    }
+
+    /** Rebuilds retained step {@code i} with full snapshots. */
+    public BellmanFordAlgorithm.Step getStep(long i) {
+        Segment s = readable(segmentFor(i));
+        double[] distance = Arrays.copyOf(s.checkpointDistance, s.checkpointDistance.length);
+        int[] predecessor = Arrays.copyOf(s.checkpointPredecessor, s.checkpointPredecessor.length);
+        int last = offsetIn(s, i);
+        for (int k = 0; k <= last; k++) {
+            if (s.relaxed[k]) {
+                Graph.Edge e = edges.get(s.edgeIndex[k]);
+                distance[e.to] = s.newDistance[k];
+                predecessor[e.to] = e.from;
+            }
+        }
+        return new BellmanFordAlgorithm.Step(s.iteration[last], edges.get(s.edgeIndex[last]), distance,
+                predecessor, s.relaxed[last]);
+    }
+
+    /** Returns a live list view of the retained steps. */
+    public View asSteps() {
+        return new View();
+    }
+
+    /**
+     * {@code List<Step>} view for the visualizer; also exposes the cheap
+     * per-step accessors so callers can search without materializing steps.
+     */
+    public class View extends AbstractList<BellmanFordAlgorithm.Step> {
+        @Override
+        public BellmanFordAlgorithm.Step get(int i) {
+            return getStep(i);
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, StepTrace.this.size());
+        }
+
+        public int iterationAt(int i) {
+            return StepTrace.this.iterationAt(i);
+        }
+
+        public boolean isRelaxed(int i) {
+            return StepTrace.this.isRelaxed(i);
+        }
+
+        /** Returns the trace behind this view. */
+        public StepTrace getTrace() {
+            return StepTrace.this;
+        }
+    }
+
+    private Segment startSegment() {
+        // The live arrays already include every recorded step
+        current = new Segment(stepCount, liveDistance, livePredecessor);
+        segments.addLast(current);
+        index.add(current);
+        residentBytes += current.residentBytes();
+        if (capacity > 0) {
+            long maxSegments = (capacity + segmentLength - 1) / segmentLength + 1;
+            while (segments.size() > maxSegments) {
+                dropFirst();
+            }
+        }
+        if (memoryBudget > 0) {
+            enforceBudget();
+        }
+        return current;
+    }
+
+    /**
+     * Moves the oldest in-memory segments out until the budget is met:
+     * spilled if possible, otherwise dropped. Then thins round checkpoints
+     * if they alone exceed the budget.
+     */
+    private void enforceBudget() {
+        long freed = 0;
+        Segment dropThrough = null;
+        for (Segment s : segments) {
+            if (residentBytes - freed <= memoryBudget || s == current) {
+                break;
+            }
+            if (s.detail != Detail.FULL) {
+                continue;
+            }
+            JfrEvents.TraceSpill event = new JfrEvents.TraceSpill();
+            event.begin();
+            long before = s.residentBytes();
+            boolean spilled = spillDirectory != null && !spillFailed && spill(s);
+            if (spilled) {
+                residentBytes += s.residentBytes() - before;
+            } else {
+                // Everything older goes too, so retained steps stay contiguous
+                dropThrough = s;
+                freed += before;
+            }
+            if (event.shouldCommit()) {
+                event.steps = s.size;
+                event.rawBytes = before;
+                event.compressedBytes = spilled ? s.spillLength : 0;
+                event.dropped = !spilled;
+                event.commit();
+            }
+        }
+        if (dropThrough != null) {
+            Segment s;
+            do {
+                s = segments.peekFirst();
+                budgetDroppedSteps += s.size;
+                dropFirst();
+            } while (s != dropThrough);
+        }
+        while (residentBytes > memoryBudget && checkpoints.size() > 1) {
+            // Keep every other checkpoint, counting back from the newest
+            List<Checkpoint> kept = new ArrayList<>();
+            for (int i = checkpoints.size() - 1; i >= 0; i--) {
+                if ((checkpoints.size() - 1 - i) % 2 == 0) {
+                    kept.add(checkpoints.get(i));
+                } else {
+                    residentBytes -= checkpoints.get(i).residentBytes();
+                }
+            }
+            Collections.reverse(kept);
+            checkpoints.clear();
+            checkpoints.addAll(kept);
+        }
+    }
+
+    /** Compresses a segment into the spill file and frees its arrays. */
+    private boolean spill(Segment s) {
+        int n = s.checkpointDistance.length;
+        ByteBuffer raw = ByteBuffer.allocate(s.size * BYTES_PER_STEP + 12 * n);
+        for (int k = 0; k < s.size; k++) {
+            raw.putInt(s.iteration[k]).putInt(s.edgeIndex[k]).put((byte) (s.relaxed[k] ? 1 : 0))
+                    .putDouble(s.newDistance[k]);
+        }
+        for (int v = 0; v < n; v++) {
+            raw.putDouble(s.checkpointDistance[v]).putInt(s.checkpointPredecessor[v]);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw.array());
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.capacity() / 4 + 64);
+            byte[] chunk = new byte[1 << 16];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+            if (spillChannel == null) {
+                spillFile = Files.createTempFile(spillDirectory, "steptrace", ".spill");
+                spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            long offset = spillChannel.size();
+            ByteBuffer out = ByteBuffer.wrap(compressed.toByteArray());
+            while (out.hasRemaining()) {
+                spillChannel.write(out, offset + out.position());
+            }
+            s.spillOffset = offset;
+            s.spillLength = compressed.size();
+            s.rawLength = raw.capacity();
+        } catch (IOException e) {
+            System.err.println("Step trace spill failed, dropping old steps instead: " + e.getMessage());
+            spillFailed = true;
+            return false;
+        } finally {
+            deflater.end();
+        }
+        s.iteration = null;
+        s.edgeIndex = null;
+        s.relaxed = null;
+        s.newDistance = null;
+        s.checkpointDistance = null;
+        s.checkpointPredecessor = null;
+        s.detail = Detail.SPILLED;
+        spilledSteps += s.size;
+        return true;
+    }
+
+    /** Returns a segment with its arrays present, reading spilled ones back. */
+    private Segment readable(Segment s) {
+        if (s.detail != Detail.SPILLED) {
+            return s;
+        }
+        if (loaded != null && loaded.start == s.start) {
+            return loaded;
+        }
+        try {
+            ByteBuffer compressed = ByteBuffer.allocate(s.spillLength);
+            while (compressed.hasRemaining()) {
+                if (spillChannel.read(compressed, s.spillOffset + compressed.position()) < 0) {
+                    throw new EOFException("Spill file truncated");
+                }
+            }
+            byte[] raw = new byte[s.rawLength];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed.array());
+                int filled = 0;
+                while (filled < raw.length && !inflater.finished()) {
+                    filled += inflater.inflate(raw, filled, raw.length - filled);
+                }
+            } finally {
+                inflater.end();
+            }
+            ByteBuffer in = ByteBuffer.wrap(raw);
+            int n = (s.rawLength - s.size * BYTES_PER_STEP) / 12;
+            Segment copy = new Segment(s.start, new double[n], new int[n]);
+            copy.iteration = new int[s.size];
+            copy.edgeIndex = new int[s.size];
+            copy.relaxed = new boolean[s.size];
+            copy.newDistance = new double[s.size];
+            copy.size = s.size;
+            for (int k = 0; k < s.size; k++) {
+                copy.iteration[k] = in.getInt();
+                copy.edgeIndex[k] = in.getInt();
+                copy.relaxed[k] = in.get() != 0;
+                copy.newDistance[k] = in.getDouble();
+            }
+            for (int v = 0; v < n; v++) {
+                copy.checkpointDistance[v] = in.getDouble();
+                copy.checkpointPredecessor[v] = in.getInt();
+            }
+            loaded = copy;
+            return copy;
+        } catch (IOException | DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Cannot read spilled steps", e));
+        }
+    }
+
+    /** Drops the oldest retained segment. */
+    private void dropFirst() {
+        release(segments.pollFirst());
+        index.set(indexOffset++, null);
+        if (indexOffset > 1024 && indexOffset > index.size() / 2) {
+            index.subList(0, indexOffset).clear();
+            indexOffset = 0;
+        }
+    }
+
+    private void release(Segment s) {
+        if (s.detail == Detail.SPILLED) {
+            spilledSteps -= s.size;
+        }
+        residentBytes -= s.residentBytes();
+        if (loaded != null && loaded.start == s.start) {
+            loaded = null;
+        }
+    }
+
+    private void closeSpillFile() {
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                System.err.println("Could not delete step trace spill file: " + e.getMessage());
+            }
+            spillChannel = null;
+            spillFile = null;
+        }
+    }
+
+    private int offsetIn(Segment s, long i) {
+        return (int) (getFirstStep() + i - s.start);
+    }
+
+    private Segment segmentFor(long i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Step " + i + " of " + size());
+        }
+        long absolute = getFirstStep() + i;
+        Segment first = segments.peekFirst();
+        int k = (int) ((absolute - first.start) / segmentLength);
+        return index.get(indexOffset + k);
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Memory-mapped reader for trace files written by {@link TraceWriter}.
+ * Any step can be materialized by loading the nearest checkpoint and replaying
+ * at most one checkpoint interval of records, independent of trace length.
+ */
+public class TraceReader implements Closeable {
+    // Files larger than 2 GB are mapped in overlapping segments
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_OVERLAP = 8;
+
+    private final MappedByteBuffer[] segments;
+    private final int source;
+    private final int arraySize;
+    private final int checkpointInterval;
+    private final Graph graph;
+    private final List<Graph.Edge> edges;
+    private final long stepCount;
+    private final long[] checkpointOffsets;
+
+    private TraceReader(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        segments = new MappedByteBuffer[Math.max(1, count)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = i * SEGMENT_SIZE;
+            long length = Math.min(size - start, SEGMENT_SIZE + SEGMENT_OVERLAP);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+        }
+        if (size < 16 || getInt(size - 4) != TraceWriter.MAGIC || getInt(0) != TraceWriter.MAGIC) {
+            throw new IOException("Not a complete Bellman-Ford trace file");
+        }
+        if (getInt(4) != TraceWriter.VERSION) {
+            throw new IOException("Unsupported trace version " + getInt(4));
+        }
+        source = getInt(8);
+        arraySize = getInt(12);
+        checkpointInterval = getInt(16);
+        long pos = 20;
+        graph = new Graph();
+        int vertexCount = getInt(pos);
+        pos += 4;
+        for (int i = 0; i < vertexCount; i++, pos += 4) {
+            graph.addVertex(getInt(pos));
+        }
+        int edgeCount = getInt(pos);
+        pos += 4;
+        int[][] endpoints = new int[edgeCount][];
+        for (int i = 0; i < edgeCount; i++, pos += 16) {
+            endpoints[i] = new int[] { getInt(pos), getInt(pos + 4) };
+            graph.addEdge(endpoints[i][0], endpoints[i][1], getDouble(pos + 8));
+        }
+        // Resolve to the graph's own Edge objects so the visualizer can highlight them
+        Map<Long, Graph.Edge> byKey = new HashMap<>();
+        for (Graph.Edge e : graph.getEdges()) {
+            byKey.put(edgeKey(e.from, e.to), e);
+        }
+        List<Graph.Edge> resolved = new ArrayList<>(edgeCount);
+        for (int[] ep : endpoints) {
+            resolved.add(byKey.get(edgeKey(ep[0], ep[1])));
+        }
+        edges = Collections.unmodifiableList(resolved);
+
+        long footer = getLong(size - 12);
+        stepCount = getLong(footer);
+        checkpointOffsets = new long[getInt(footer + 8)];
+        for (int i = 0; i < checkpointOffsets.length; i++) {
+            checkpointOffsets[i] = getLong(footer + 12 + 8L * i);
+        }
+    }
+
+    /** Opens and maps a trace file. */
+    public static TraceReader open(Path path) throws IOException {
+        JfrEvents.GraphLoad event = new JfrEvents.GraphLoad();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            TraceReader reader = new TraceReader(channel);
+            if (event.shouldCommit()) {
+                event.origin = "trace";
+                event.path = path.toString();
+                event.vertices = reader.graph.getVertices().size();
+                event.edges = reader.edges.size();
+                event.commit();
+            }
+            return reader;
+        }
+    }
+
+    /** Returns the source vertex of the traced run. */
+    public int getSource() {
+        return source;
+    }
+
+    /** Returns the graph the trace was recorded on. */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /** Returns the number of recorded steps. */
+    public long size() {
+        return stepCount;
+    }
+
+    /** Returns the iteration of step {@code index} without materializing it. */
+    public int iterationAt(long index) {
+        return getInt(recordPosition(index));
+    }
+
+    /** Returns whether step {@code index} relaxed its edge. */
+    public boolean isRelaxed(long index) {
+        return getByte(recordPosition(index) + 8) != 0;
+    }
+
+    /** Materializes step {@code index} with full distance and predecessor snapshots. */
+    public BellmanFordAlgorithm.Step getStep(long index) {
+        checkIndex(index);
+        int checkpoint = (int) (index / checkpointInterval);
+        long base = checkpointOffsets[checkpoint];
+        double[] distance = new double[arraySize];
+        int[] predecessor = new int[arraySize];
+        for (int v = 0; v < arraySize; v++) {
+            distance[v] = getDouble(base + 8L * v);
+            predecessor[v] = getInt(base + 8L * arraySize + 4L * v);
+        }
+        long records = base + 12L * arraySize;
+        long first = (long) checkpoint * checkpointInterval;
+        int iteration = 0;
+        int edgeIndex = 0;
+        boolean relaxed = false;
+        for (long i = first; i <= index; i++) {
+            long pos = records + (i - first) * TraceWriter.RECORD_SIZE;
+            iteration = getInt(pos);
+            edgeIndex = getInt(pos + 4);
+            relaxed = getByte(pos + 8) != 0;
+            if (relaxed) {
+                Graph.Edge e = edges.get(edgeIndex);
+                distance[e.to] = getDouble(pos + 9);
+                predecessor[e.to] = e.from;
+            }
+        }
+        return new BellmanFordAlgorithm.Step(iteration, edges.get(edgeIndex), distance, predecessor, relaxed);
+    }
+
+    /**
+     * Returns a read-only list view of the steps, suitable for
+     * {@link BellmanFordVisualizer#loadSteps(List)}. Steps are materialized on access.
+     */
+    public View asSteps() {
+        if (stepCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Trace too long for a list view: " + stepCount + " steps");
+        }
+        return new View();
+    }
+
+    /**
+     * {@code List<Step>} view for the visualizer; also exposes the cheap
+     * per-step accessors so callers can search without materializing steps.
+     */
+    public class View extends AbstractList<BellmanFordAlgorithm.Step> {
+        @Override
+        public BellmanFordAlgorithm.Step get(int index) {
+            return getStep(index);
+        }
+
+        @Override
+        public int size() {
+            return (int) stepCount;
+        }
+
+        public int iterationAt(int index) {
+            return TraceReader.this.iterationAt(index);
+        }
+
+        public boolean isRelaxed(int index) {
+            return TraceReader.this.isRelaxed(index);
+        }
+    }
+
+    @Override
+    public void close() {
+        // Mappings are released by the GC; the channel is already closed.
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= stepCount) {
+            throw new IndexOutOfBoundsException("Step " + index + " of " + stepCount);
+        }
+    }
+
+    /** Returns the file offset of step {@code index}'s record. */
+    private long recordPosition(long index) {
+        checkIndex(index);
+        int checkpoint = (int) (index / checkpointInterval);
+        long first = (long) checkpoint * checkpointInterval;
+        return checkpointOffsets[checkpoint] + 12L * arraySize + (index - first) * TraceWriter.RECORD_SIZE;
+    }
+
+    private static long edgeKey(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    private MappedByteBuffer segment(long pos) {
+        return segments[(int) (pos >>> SEGMENT_SHIFT)];
+    }
+
+    private byte getByte(long pos) {
+        return segment(pos).get((int) (pos & (SEGMENT_SIZE - 1)));
+    }
+
+    private int getInt(long pos) {
+        return segment(pos).getInt((int) (pos & (SEGMENT_SIZE - 1)));
+    }
+
+    private long getLong(long pos) {
+        return segment(pos).getLong((int) (pos & (SEGMENT_SIZE - 1)));
+    }
+
+    private double getDouble(long pos) {
+        return segment(pos).getDouble((int) (pos & (SEGMENT_SIZE - 1)));
+    }
+}
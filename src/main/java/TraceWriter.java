@@ -0,0 +1,169 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Streams Bellman-Ford steps into a compact binary trace file.
+ *
+ * Layout: a header with the graph (vertices and edges in relaxation order),
+ * then fixed-size 17-byte step records. Every {@code checkpointInterval}
+ * records a full distance/predecessor checkpoint is written inline, and a
+ * footer indexes all checkpoints so {@link TraceReader} can seek to any step
+ * by replaying at most one interval.
+ */
+public class TraceWriter implements StepRecorder, Closeable {
+    static final int MAGIC = 0x42465452; // "BFTR"
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 4 + 4 + 1 + 8;
+    private static final int MIN_CHECKPOINT_INTERVAL = 1024;
+
+    private final Path path;
+    private final int requestedInterval;
+    private DataOutputStream out;
+    private long position;
+    private int checkpointInterval;
+    private List<Graph.Edge> edges;
+    // Shadow state, so checkpoints can be written without touching the solver
+    private double[] distance;
+    private int[] predecessor;
+    private long stepCount;
+    private List<Long> checkpointOffsets = new ArrayList<>();
+    private boolean finished;
+
+    /** Creates a writer with a checkpoint interval chosen from the graph size. */
+    public TraceWriter(Path path) {
+        this(path, 0);
+    }
+
+    /**
+     * Creates a writer that checkpoints every {@code checkpointInterval} steps
+     * (0 picks a default so checkpoints cost at most ~12 bytes per step).
+     */
+    public TraceWriter(Path path, int checkpointInterval) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("checkpointInterval must be >= 0");
+        }
+        this.path = path;
+        this.requestedInterval = checkpointInterval;
+    }
+
+    /** Starts a new trace. Called by {@link BellmanFordAlgorithm#run()}. */
+    @Override
+    public void begin(Graph graph, int source, List<Graph.Edge> edges, double[] distance, int[] predecessor) {
+        if (out != null) {
+            throw new IllegalStateException("Trace already started: " + path);
+        }
+        this.edges = edges;
+        this.distance = Arrays.copyOf(distance, distance.length);
+        this.predecessor = Arrays.copyOf(predecessor, predecessor.length);
+        this.checkpointInterval = requestedInterval > 0 ? requestedInterval
+                : Math.max(MIN_CHECKPOINT_INTERVAL, distance.length);
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            writeInt(MAGIC);
+            writeInt(VERSION);
+            writeInt(source);
+            writeInt(distance.length);
+            writeInt(checkpointInterval);
+            List<Integer> vertices = new ArrayList<>(graph.getVertices());
+            Collections.sort(vertices);
+            writeInt(vertices.size());
+            for (int v : vertices) {
+                writeInt(v);
+            }
+            writeInt(edges.size());
+            for (Graph.Edge e : edges) {
+                writeInt(e.from);
+                writeInt(e.to);
+                writeDouble(e.weight);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /** Appends one step: the edge at {@code edgeIndex} and the target's distance after it. */
+    @Override
+    public void record(int iteration, int edgeIndex, boolean relaxed, double newDistance) {
+        try {
+            if (stepCount % checkpointInterval == 0) {
+                writeCheckpoint();
+            }
+            writeInt(iteration);
+            writeInt(edgeIndex);
+            out.writeByte(relaxed ? 1 : 0);
+            position++;
+            writeDouble(newDistance);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (relaxed) {
+            Graph.Edge e = edges.get(edgeIndex);
+            distance[e.to] = newDistance;
+            predecessor[e.to] = e.from;
+        }
+        stepCount++;
+    }
+
+    /** Writes the checkpoint index and closes the file. */
+    @Override
+    public void finish() {
+        if (finished || out == null) {
+            return;
+        }
+        finished = true;
+        try {
+            long footerOffset = position;
+            writeLong(stepCount);
+            writeInt(checkpointOffsets.size());
+            for (long offset : checkpointOffsets) {
+                writeLong(offset);
+            }
+            writeLong(footerOffset);
+            writeInt(MAGIC);
+            out.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+
+    /** Returns the number of steps written so far. */
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /** Returns the file this writer streams into. */
+    public Path getPath() {
+        return path;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        checkpointOffsets.add(position);
+        for (double d : distance) {
+            writeDouble(d);
+        }
+        for (int p : predecessor) {
+            writeInt(p);
+        }
+    }
+
+    private void writeInt(int v) throws IOException {
+        out.writeInt(v);
+        position += 4;
+    }
+
+    private void writeLong(long v) throws IOException {
+        out.writeLong(v);
+        position += 8;
+    }
+
+    private void writeDouble(double v) throws IOException {
+        out.writeDouble(v);
+        position += 8;
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.*;
+
+/**
+ * A renumbering of a graph's vertices to dense internal ids 0..n-1 chosen
+ * so that vertices relaxed together sit close together in memory. Vertex
+ * ids come from users and can be scattered; solving on internal ids turns
+ * most distance-array accesses into nearby reads.
+ */
+public final class VertexOrdering {
+    /** How to order vertices. */
+    public enum Strategy {
+        /** Breadth-first from the source along outgoing edges. */
+        BFS,
+        /** Reverse Cuthill-McKee: small bandwidth for the undirected graph. */
+        REVERSE_CUTHILL_MCKEE,
+        /** Along a Hilbert curve over the vertices' screen positions. */
+        HILBERT
+    }
+
+    private static final int HILBERT_BITS = 15;
+
+    private final int[] toInternal; // by external id; -1 for non-vertices
+    private final int[] toExternal;
+
+    private VertexOrdering(int[] toExternal, int arraySize) {
+        this.toExternal = toExternal;
+        this.toInternal = new int[arraySize];
+        Arrays.fill(toInternal, -1);
+        for (int i = 0; i < toExternal.length; i++) {
+            toInternal[toExternal[i]] = i;
+        }
+    }
+
+    /**
+     * Orders the vertices of {@code graph} with {@code strategy}. BFS starts at
+     * {@code source}; HILBERT uses {@code positions} (vertices without one go
+     * last). Vertices not reached by a traversal follow in id order.
+     */
+    public static VertexOrdering of(Graph graph, Strategy strategy, int source, Map<Integer, Double[]> positions) {
+        switch (strategy) {
+            case BFS:
+                return bfs(graph, source);
+            case REVERSE_CUTHILL_MCKEE:
+                return reverseCuthillMcKee(graph);
+            case HILBERT:
+                return hilbert(graph, positions);
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + strategy);
+        }
+    }
+
+    /** Breadth-first order along outgoing edges from {@code source}. */
+    public static VertexOrdering bfs(Graph graph, int source) {
+        int[] ids = sortedIds(graph);
+        int arraySize = arraySize(ids);
+        int[] order = new int[ids.length];
+        boolean[] seen = new boolean[arraySize];
+        int count = 0;
+        if (source < arraySize && graph.getVertices().contains(source)) {
+            count = bfsFrom(graph, source, order, count, seen);
+        }
+        for (int v : ids) {
+            if (!seen[v]) {
+                count = bfsFrom(graph, v, order, count, seen);
+            }
+        }
+        return new VertexOrdering(order, arraySize);
+    }
+
+    /**
+     * Reverse Cuthill-McKee over the undirected version of the graph: each
+     * component is traversed breadth-first from a minimum-degree vertex,
+     * visiting neighbours by increasing degree, and the result is reversed.
+     */
+    public static VertexOrdering reverseCuthillMcKee(Graph graph) {
+        int[] ids = sortedIds(graph);
+        int arraySize = arraySize(ids);
+        // Undirected adjacency in CSR form
+        int[] degree = new int[arraySize];
+        for (Graph.Edge e : graph.getEdges()) {
+            degree[e.from]++;
+            degree[e.to]++;
+        }
+        int[] offsets = new int[arraySize + 1];
+        for (int v = 0; v < arraySize; v++) {
+            offsets[v + 1] = offsets[v] + degree[v];
+        }
+        int[] neighbours = new int[offsets[arraySize]];
+        int[] fill = Arrays.copyOf(offsets, arraySize);
+        for (Graph.Edge e : graph.getEdges()) {
+            neighbours[fill[e.from]++] = e.to;
+            neighbours[fill[e.to]++] = e.from;
+        }
+        Integer[] byDegree = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            byDegree[i] = ids[i];
+        }
+        Arrays.sort(byDegree, Comparator.comparingInt((Integer v) -> degree[v]).thenComparingInt(v -> v));
+
+        int[] order = new int[ids.length];
+        boolean[] seen = new boolean[arraySize];
+        int count = 0;
+        List<Integer> level = new ArrayList<>();
+        for (int start : byDegree) {
+            if (seen[start]) {
+                continue;
+            }
+            seen[start] = true;
+            order[count++] = start;
+            for (int head = count - 1; head < count; head++) {
+                int u = order[head];
+                level.clear();
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int v = neighbours[k];
+                    if (!seen[v]) {
+                        seen[v] = true;
+                        level.add(v);
+                    }
+                }
+                level.sort(Comparator.comparingInt((Integer v) -> degree[v]).thenComparingInt(v -> v));
+                for (int v : level) {
+                    order[count++] = v;
+                }
+            }
+        }
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return new VertexOrdering(order, arraySize);
+    }
+
+    /** Orders vertices along a Hilbert curve through their positions. */
+    public static VertexOrdering hilbert(Graph graph, Map<Integer, Double[]> positions) {
+        int[] ids = sortedIds(graph);
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int v : ids) {
+            Double[] pos = positions.get(v);
+            if (pos != null) {
+                minX = Math.min(minX, pos[0]);
+                minY = Math.min(minY, pos[1]);
+                maxX = Math.max(maxX, pos[0]);
+                maxY = Math.max(maxY, pos[1]);
+            }
+        }
+        int side = 1 << HILBERT_BITS;
+        double scale = (side - 1) / Math.max(1e-9, Math.max(maxX - minX, maxY - minY));
+        long[] keys = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            Double[] pos = positions.get(ids[i]);
+            long d = pos == null ? (long) side * side
+                    : hilbertIndex(side, (int) ((pos[0] - minX) * scale), (int) ((pos[1] - minY) * scale));
+            // Curve index in the high bits, position in ids as tie-breaker
+            keys[i] = (d << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            order[i] = ids[(int) keys[i]];
+        }
+        return new VertexOrdering(order, arraySize(ids));
+    }
+
+    /** Returns the number of vertices. */
+    public int size() {
+        return toExternal.length;
+    }
+
+    /** Returns the internal id of vertex {@code v}, or -1 if it is not a vertex. */
+    public int toInternal(int v) {
+        return v >= 0 && v < toInternal.length ? toInternal[v] : -1;
+    }
+
+    /** Returns the vertex id for internal id {@code i}. */
+    public int toExternal(int i) {
+        return toExternal[i];
+    }
+
+    /** Returns vertex ids in internal order. */
+    public int[] getOrder() {
+        return toExternal.clone();
+    }
+
+    private static int bfsFrom(Graph graph, int start, int[] order, int count, boolean[] seen) {
+        seen[start] = true;
+        order[count++] = start;
+        for (int head = count - 1; head < count; head++) {
+            for (Graph.Edge e : graph.getOutgoingEdges(order[head])) {
+                if (!seen[e.to]) {
+                    seen[e.to] = true;
+                    order[count++] = e.to;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Distance of (x, y) along the Hilbert curve filling a side x side grid. */
+    private static long hilbertIndex(int side, int x, int y) {
+        long d = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private static int[] sortedIds(Graph graph) {
+        return graph.getVertices().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static int arraySize(int[] sortedIds) {
+        return sortedIds.length == 0 ? 0 : sortedIds[sortedIds.length - 1] + 1;
+    }
+}
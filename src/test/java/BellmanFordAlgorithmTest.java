@@ -146,4 +146,79 @@ public class BellmanFordAlgorithmTest {
         assertEquals(1.0, d[2], 1e-9); // Path: 0->1->2 (4 + (-3) = 1)
         assertEquals(5.0, d[3], 1e-9); // Path: 0->3 (direct) or 0->1->2->3 (4 + (-3) + 4 = 5), both give 5
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testWarmStartAfterEditsMatchesColdRun() {
+        Random rand = new Random(17);
+        for (int trial = 0; trial < 20; trial++) {
+            Graph g = GraphGenerators.layeredDag(6, 8, 3, trial, -2, 6);
+            BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+            assertTrue(bfa.run());
+            double[] prior = bfa.getDistances();
+            int[] priorPred = bfa.getPredecessors();
+
+            Set<Integer> touched = new HashSet<>();
+            List<Graph.Edge> edges = g.getEdges();
+            for (int i = 0; i < 5; i++) {
+                Graph.Edge e = edges.get(rand.nextInt(edges.size()));
+                switch (rand.nextInt(4)) {
+                    case 0: // cheaper
+                        g.addEdge(e.from, e.to, e.weight - 3);
+                        touched.add(e.from);
+                        break;
+                    case 1: // more expensive
+                        g.addEdge(e.from, e.to, e.weight + 3);
+                        break;
+                    case 2:
+                        g.removeEdge(e.from, e.to);
+                        break;
+                    default: // new forward edge
+                        int from = rand.nextInt(40);
+                        g.addEdge(from, from + 8 + rand.nextInt(8), rand.nextInt(5) - 2);
+                        touched.add(from);
+                }
+            }
+
+            BellmanFordAlgorithm cold = new BellmanFordAlgorithm(g, 0);
+            assertTrue(cold.run());
+            BellmanFordAlgorithm warm = new BellmanFordAlgorithm(g, 0);
+            warm.warmStart(prior, priorPred, touched);
+            assertTrue(warm.run());
+            assertArrayEquals(cold.getDistances(), warm.getDistances(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testWarmStartWithoutEditsDoesNoWork() {
+        Graph g = makeGraph(new int[][] { { 0, 1, 4 }, { 0, 2, 5 }, { 1, 2, -3 }, { 2, 3, 4 } });
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        assertTrue(bfa.run());
+        bfa.warmStart(bfa.getDistances(), bfa.getPredecessors(), Collections.emptySet());
+        assertTrue(bfa.run());
+        assertTrue(bfa.getSteps().isEmpty());
+        assertEquals(5.0, bfa.getDistances()[3], 1e-9);
+    }
+
+    @Test
+    public void testWarmStartRemovedVertexAndNewCycle() {
+        Graph g = makeGraph(new int[][] { { 0, 1, 1 }, { 1, 2, 1 }, { 0, 3, 5 }, { 3, 2, 1 } });
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        assertTrue(bfa.run());
+        double[] prior = bfa.getDistances();
+        int[] priorPred = bfa.getPredecessors();
+
+        // Removing 1 invalidates 2's distance, which must fall back to 0->3->2
+        g.removeVertex(1);
+        bfa.warmStart(prior, priorPred, Collections.emptySet());
+        assertTrue(bfa.run());
+        assertEquals(6.0, bfa.getDistances()[2], 1e-9);
+        assertEquals(3, bfa.getPredecessors()[2]);
+
+        // A new negative cycle is still detected
+        prior = bfa.getDistances();
+        priorPred = bfa.getPredecessors();
+        g.addEdge(2, 3, -3);
+        bfa.warmStart(prior, priorPred, Collections.singleton(2));
+        assertFalse(bfa.run());
+    }
+}
@@ -0,0 +1,128 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for the component-by-component solver.
+ */
+public class ComponentSolverTest {
+    private ShortestPathResult bellmanFord(Graph g, int source) {
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, source);
+        bfa.setRecordSteps(false);
+        boolean ok = bfa.run();
+        return new ShortestPathResult(source, bfa.getDistances(), bfa.getPredecessors(), ok);
+    }
+
+    @Test
+    public void testMatchesBellmanFordWithoutNegativeCycles() {
+        Graph g = GraphGenerators.randomSparse(500, 1500, 3, 1, 20);
+        // Negative edges that cannot close a negative cycle
+        for (int v = 0; v + 1 < 500; v += 7) {
+            g.addEdge(v, v + 1, -1);
+        }
+        ShortestPathResult want = bellmanFord(g, 0);
+        assertTrue(want.hasNoNegativeCycle());
+        for (boolean parallel : new boolean[] { false, true }) {
+            ComponentSolver solver = new ComponentSolver(g);
+            solver.setParallel(parallel);
+            ShortestPathResult got = solver.solve(0);
+            assertTrue(got.hasNoNegativeCycle());
+            assertTrue(solver.getLastReport().negativeComponents.isEmpty());
+            for (int v : g.getVertices()) {
+                assertEquals("vertex " + v, want.getDistance(v), got.getDistance(v), 1e-9);
+                List<Integer> path = got.getPath(v);
+                if (v != 0 && got.getDistance(v) != Double.POSITIVE_INFINITY) {
+                    assertEquals(Integer.valueOf(0), path.get(0));
+                    assertEquals(Integer.valueOf(v), path.get(path.size() - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDagIsAllTrivialComponents() {
+        Graph g = GraphGenerators.layeredDag(6, 20, 3, 5, -10, 10);
+        ComponentSolver solver = new ComponentSolver(g);
+        ShortestPathResult got = solver.solve(0);
+        ShortestPathResult want = bellmanFord(g, 0);
+        assertEquals(0, solver.getLastReport().nontrivialComponents);
+        for (int v : g.getVertices()) {
+            assertEquals(want.getDistance(v), got.getDistance(v), 1e-9);
+        }
+    }
+
+    @Test
+    public void testNegativeCycleMarksOnlyDownstreamVertices() {
+        // 0 -> {1 <-> 2} -> 3 -> 4, and 0 -> 5 -> 6 beside it
+        Graph g = new Graph();
+        g.addEdge(0, 1, 1);
+        g.addEdge(1, 2, -3);
+        g.addEdge(2, 1, 1);
+        g.addEdge(2, 3, 2);
+        g.addEdge(3, 4, 1);
+        g.addEdge(0, 5, 4);
+        g.addEdge(5, 6, -1);
+        g.addEdge(6, 5, 2);
+        g.addEdge(7, 1, 1);
+
+        ComponentSolver solver = new ComponentSolver(g);
+        ShortestPathResult result = solver.solve(0);
+        assertFalse(result.hasNoNegativeCycle());
+        ComponentSolver.Report report = solver.getLastReport();
+        assertEquals(Collections.singletonList(Arrays.asList(1, 2)), report.negativeComponents);
+        assertEquals(2, report.nontrivialComponents);
+        for (int v : new int[] { 1, 2, 3, 4 }) {
+            assertEquals(Double.NEGATIVE_INFINITY, result.getDistance(v), 0);
+            assertEquals(-1, result.getPredecessors()[v]); // 3 and 4 are fed through single edges
+            assertTrue(result.getPath(v).isEmpty());
+        }
+        assertEquals(0, result.getDistance(0), 0);
+        assertEquals(4, result.getDistance(5), 0);
+        assertEquals(3, result.getDistance(6), 0);
+        assertEquals(Arrays.asList(0, 5, 6), result.getPath(6));
+        assertEquals(Double.POSITIVE_INFINITY, result.getDistance(7), 0);
+    }
+
+    @Test
+    public void testNegativeSelfLoopAndFedComponent() {
+        // 0 -> 1 (self-loop -1) -> {2 <-> 3 with its own negative cycle} and -> {4 <-> 5} without
+        Graph g = new Graph();
+        g.addEdge(0, 1, 2);
+        g.addEdge(1, 1, -1);
+        g.addEdge(1, 2, 1);
+        g.addEdge(2, 3, -2);
+        g.addEdge(3, 2, 1);
+        g.addEdge(1, 4, 1);
+        g.addEdge(4, 5, 1);
+        g.addEdge(5, 4, 1);
+
+        ComponentSolver solver = new ComponentSolver(g);
+        ShortestPathResult result = solver.solve(0);
+        assertEquals(Arrays.asList(Collections.singletonList(1), Arrays.asList(2, 3)),
+                sorted(solver.getLastReport().negativeComponents));
+        for (int v = 1; v <= 5; v++) {
+            assertEquals(Double.NEGATIVE_INFINITY, result.getDistance(v), 0);
+            assertEquals(-1, result.getPredecessors()[v]);
+        }
+    }
+
+    @Test
+    public void testUnknownSourceIsRejected() {
+        Graph g = new Graph();
+        g.addEdge(0, 2, -1);
+        ComponentSolver solver = new ComponentSolver(g);
+        for (int source : new int[] { -1, 1, 3 }) {
+            try {
+                solver.solve(source);
+                fail("Expected source " + source + " to be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    private static List<List<Integer>> sorted(List<List<Integer>> components) {
+        List<List<Integer>> copy = new ArrayList<>(components);
+        copy.sort(Comparator.comparing((List<Integer> c) -> c.get(0)));
+        return copy;
+    }
+}
@@ -0,0 +1,176 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Tests for the partitioned solver, using workers on localhost.
+ */
+public class DistributedBellmanFordTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final List<PartitionWorker> workers = new ArrayList<>();
+    private final List<InetSocketAddress> addresses = new ArrayList<>();
+
+    @Before
+    public void startWorkers() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            PartitionWorker worker = PartitionWorker.bind(0);
+            Thread thread = new Thread(worker, "partition-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(worker);
+            addresses.add(worker.getAddress());
+        }
+    }
+
+    @After
+    public void stopWorkers() throws Exception {
+        for (PartitionWorker worker : workers) {
+            worker.close();
+        }
+    }
+
+    private DistributedBellmanFord coordinator(Graph g, int source, List<InetSocketAddress> workers)
+            throws Exception {
+        Path file = tmp.newFile().toPath();
+        DistributedBellmanFord.writeEdgeFile(g, file);
+        return new DistributedBellmanFord(file, source, workers);
+    }
+
+    private static int[] ids(int n) {
+        int[] ids = new int[n];
+        for (int v = 0; v < n; v++) {
+            ids[v] = v;
+        }
+        return ids;
+    }
+
+    private Graph randomGraph(int n, int m, long seed) {
+        Random rand = new Random(seed);
+        Graph g = new Graph();
+        for (int v = 0; v < n; v++) {
+            g.addVertex(v);
+        }
+        for (int i = 0; i < m; i++) {
+            // Forward edges only, so negative weights cannot form cycles
+            int a = rand.nextInt(n);
+            int b = rand.nextInt(n);
+            if (a != b) {
+                g.addEdge(Math.min(a, b), Math.max(a, b), rand.nextInt(21) - 5);
+            }
+        }
+        return g;
+    }
+
+    @Test
+    public void testMatchesSingleProcessSolver() throws Exception {
+        Graph g = randomGraph(60, 240, 7);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        assertTrue(bfa.run());
+        try (DistributedBellmanFord dbf = coordinator(g, 0, addresses)) {
+            assertTrue(dbf.run());
+            assertEquals(60, dbf.getVertexCount());
+            assertArrayEquals(bfa.getDistances(), dbf.getDistances(ids(60)), 1e-9);
+            for (int v : new int[] { 7, 33, 59 }) {
+                List<Integer> path = dbf.getPath(v);
+                if (bfa.getDistances()[v] != Double.POSITIVE_INFINITY) {
+                    assertEquals(Integer.valueOf(0), path.get(0));
+                    assertEquals(Integer.valueOf(v), path.get(path.size() - 1));
+                } else {
+                    assertTrue(path.isEmpty());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWorkersServeRepeatedRuns() throws Exception {
+        Graph g = randomGraph(30, 90, 11);
+        try (DistributedBellmanFord dbf = coordinator(g, 5, addresses)) {
+            assertTrue(dbf.run());
+            double[] first = dbf.getDistances(ids(30));
+            assertTrue(dbf.run());
+            assertArrayEquals(first, dbf.getDistances(ids(30)), 0);
+        }
+        // A new coordinator gets fresh sessions on the same workers
+        try (DistributedBellmanFord dbf = coordinator(g, 0, addresses)) {
+            assertTrue(dbf.run());
+            assertEquals(0, dbf.getDistance(0), 0);
+        }
+    }
+
+    @Test
+    public void testDetectsNegativeCycle() throws Exception {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 1);
+        g.addEdge(1, 2, -1);
+        g.addEdge(2, 0, -1);
+        g.addEdge(2, 3, 4);
+        try (DistributedBellmanFord dbf = coordinator(g, 0, addresses)) {
+            assertFalse(dbf.run());
+        }
+    }
+
+    @Test
+    public void testUnreachableVerticesStayInfinite() throws Exception {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 2);
+        g.addEdge(4, 5, -1);
+        try (DistributedBellmanFord dbf = coordinator(g, 0, addresses)) {
+            assertTrue(dbf.run());
+            double[] d = dbf.getDistances(ids(6));
+            assertEquals(2.0, d[1], 1e-9);
+            assertEquals(Double.POSITIVE_INFINITY, d[5], 1e-9);
+            assertEquals(0, dbf.getPredecessor(1));
+            assertEquals(Arrays.asList(0, 1), dbf.getPath(1));
+            assertTrue(dbf.getPath(5).isEmpty());
+        }
+    }
+
+    @Test
+    public void testUnresponsiveWorkerTimesOut() throws Exception {
+        // Accepts connections (via the backlog) but never answers
+        try (ServerSocketChannel silent = ServerSocketChannel.open()) {
+            silent.bind(new InetSocketAddress("localhost", 0));
+            List<InetSocketAddress> withSilent = new ArrayList<>(addresses);
+            withSilent.add((InetSocketAddress) silent.getLocalAddress());
+            Graph g = randomGraph(20, 40, 1);
+            try (DistributedBellmanFord dbf = coordinator(g, 0, withSilent)) {
+                dbf.setTimeout(300);
+                long start = System.nanoTime();
+                try {
+                    dbf.run();
+                    fail("expected a timeout");
+                } catch (SocketTimeoutException e) {
+                    assertTrue(System.nanoTime() - start < 5_000_000_000L);
+                }
+            }
+        }
+        // The healthy workers end their sessions and serve the next coordinator
+        try (DistributedBellmanFord dbf = coordinator(randomGraph(20, 40, 1), 0, addresses)) {
+            assertTrue(dbf.run());
+        }
+    }
+
+    @Test
+    public void testSeparateWorkerProcesses() throws Exception {
+        Graph g = randomGraph(40, 120, 3);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        assertTrue(bfa.run());
+        try (DistributedBellmanFord.LocalWorkers local = DistributedBellmanFord.LocalWorkers.start(2)) {
+            try (DistributedBellmanFord dbf = coordinator(g, 0, local.getAddresses())) {
+                assertTrue(dbf.run());
+                assertArrayEquals(bfa.getDistances(), dbf.getDistances(ids(40)), 1e-9);
+            }
+        }
+    }
+}
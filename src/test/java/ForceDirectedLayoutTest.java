@@ -0,0 +1,90 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for the Barnes-Hut force-directed layout.
+ */
+public class ForceDirectedLayoutTest {
+    private static final double THETA = 0.8;
+
+    private ForceDirectedLayout layout(Graph g, Map<Integer, Double[]> initial) {
+        return new ForceDirectedLayout(g, initial, 0, 0, 800, 600);
+    }
+
+    @Test
+    public void testBarnesHutMatchesBruteForce() {
+        Graph g = GraphGenerators.randomSparse(500, 1500, 11, 1, 10);
+        ForceDirectedLayout layout = layout(g, Collections.emptyMap());
+        double[] approximate = layout.repulsion(false);
+        double[] exact = layout.repulsion(true);
+        double error = 0, total = 0;
+        for (int i = 0; i < exact.length; i += 2) {
+            double e = Math.hypot(approximate[i] - exact[i], approximate[i + 1] - exact[i + 1]);
+            double f = Math.hypot(exact[i], exact[i + 1]);
+            // Each accepted cell is within theta of its size, so errors stay a fraction of the force
+            assertTrue("vertex " + i / 2 + ": " + e + " vs " + f, e <= THETA * f + 1e-9);
+            error += e;
+            total += f;
+        }
+        assertTrue("mean relative error " + error / total, error / total < 0.05);
+    }
+
+    @Test
+    public void testCoincidentVerticesDoNotRepelThemselves() {
+        Graph g = new Graph();
+        Map<Integer, Double[]> initial = new HashMap<>();
+        for (int v = 0; v < 5; v++) {
+            g.addVertex(v);
+            initial.put(v, new Double[] { 100.0, 100.0 }); // all in one leaf at the maximum depth
+        }
+        ForceDirectedLayout layout = layout(g, initial);
+        assertArrayEquals(layout.repulsion(true), layout.repulsion(false), 1e-6);
+    }
+
+    @Test
+    public void testLayoutConvergesAndStaysFinite() {
+        Graph g = GraphGenerators.grid(10, 10, 5, 1, 3);
+        Map<Integer, Double[]> initial = new HashMap<>();
+        for (int v : g.getVertices()) {
+            initial.put(v, new Double[] { 400.0, 300.0 }); // worst case: all coincident
+        }
+        ForceDirectedLayout layout = layout(g, initial);
+        int steps = 0;
+        while (layout.step()) {
+            steps++;
+            assertTrue(steps <= 500);
+        }
+        assertTrue(steps > 0);
+        assertFalse(layout.step());
+
+        Map<Integer, Double[]> positions = layout.getPositions();
+        Set<String> distinct = new HashSet<>();
+        for (Double[] p : positions.values()) {
+            assertTrue(Double.isFinite(p[0]) && Double.isFinite(p[1]));
+            assertTrue(p[0] >= -1e-6 && p[0] <= 800 + 1e-6 && p[1] >= -1e-6 && p[1] <= 600 + 1e-6);
+            distinct.add(Math.round(p[0]) + "," + Math.round(p[1]));
+        }
+        assertEquals(g.getVertices().size(), distinct.size());
+
+        // Neighbours end up closer than vertices in general
+        double edgeLength = 0;
+        for (Graph.Edge e : g.getEdges()) {
+            edgeLength += distance(positions.get(e.from), positions.get(e.to));
+        }
+        edgeLength /= g.getEdges().size();
+        double pairLength = 0;
+        List<Integer> vertices = new ArrayList<>(g.getVertices());
+        for (int a : vertices) {
+            for (int b : vertices) {
+                pairLength += distance(positions.get(a), positions.get(b));
+            }
+        }
+        pairLength /= (double) vertices.size() * vertices.size();
+        assertTrue(edgeLength + " vs " + pairLength, edgeLength < pairLength / 2);
+    }
+
+    private static double distance(Double[] a, Double[] b) {
+        return Math.hypot(a[0] - b[0], a[1] - b[1]);
+    }
+}
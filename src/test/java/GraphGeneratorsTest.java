@@ -0,0 +1,128 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for the seeded graph generators.
+ */
+public class GraphGeneratorsTest {
+    /** Canonical edge list, independent of HashMap iteration order. */
+    private List<String> edgeList(Graph g) {
+        List<String> edges = new ArrayList<>();
+        for (Graph.Edge e : g.getEdges()) {
+            edges.add(e.from + "->" + e.to + ":" + e.weight);
+        }
+        Collections.sort(edges);
+        return edges;
+    }
+
+    private Set<Long> distinctPairs(Graph g) {
+        Set<Long> pairs = new HashSet<>();
+        for (Graph.Edge e : g.getEdges()) {
+            pairs.add(((long) e.from << 32) | e.to);
+        }
+        return pairs;
+    }
+
+    @Test
+    public void testSameSeedSameGraph() {
+        assertEquals(edgeList(GraphGenerators.randomSparse(200, 1000, 5, -1, 10)),
+                edgeList(GraphGenerators.randomSparse(200, 1000, 5, -1, 10)));
+        assertNotEquals(edgeList(GraphGenerators.randomSparse(200, 1000, 5, -1, 10)),
+                edgeList(GraphGenerators.randomSparse(200, 1000, 6, -1, 10)));
+        assertEquals(edgeList(GraphGenerators.scaleFree(300, 3, 9, 0, 1)),
+                edgeList(GraphGenerators.scaleFree(300, 3, 9, 0, 1)));
+    }
+
+    @Test
+    public void testRandomSparseHasExactDistinctEdges() {
+        // Dense enough that the first draw is sure to contain duplicates
+        Graph g = GraphGenerators.randomSparse(20, 350, 1, 0, 1);
+        assertEquals(20, g.getVertices().size());
+        assertEquals(350, g.getEdges().size());
+        assertEquals(350, distinctPairs(g).size());
+        for (Graph.Edge e : g.getEdges()) {
+            assertNotEquals(e.from, e.to);
+            assertTrue(e.weight >= 0 && e.weight < 1);
+        }
+    }
+
+    @Test
+    public void testRandomSparseCanFillCompleteGraph() {
+        Graph g = GraphGenerators.randomSparse(40, 40 * 39, 2, 0, 1);
+        assertEquals(40 * 39, distinctPairs(g).size());
+        assertEquals(0, GraphGenerators.randomSparse(1, 0, 2, 0, 1).getEdges().size());
+    }
+
+    @Test
+    public void testInvalidSizesAreRejected() {
+        List<Runnable> invalid = Arrays.asList(
+                () -> GraphGenerators.randomSparse(10, 91, 1, 0, 1),
+                () -> GraphGenerators.randomSparse(-1, 0, 1, 0, 1),
+                () -> GraphGenerators.grid(0, 5, 1, 0, 1),
+                () -> GraphGenerators.grid(5, -2, 1, 0, 1),
+                () -> GraphGenerators.grid(100_000, 100_000, 1, 0, 1),
+                () -> GraphGenerators.layeredDag(0, 5, 1, 1, 0, 1),
+                () -> GraphGenerators.layeredDag(3, -1, 0, 1, 0, 1),
+                () -> GraphGenerators.layeredDag(3, 5, -1, 1, 0, 1),
+                () -> GraphGenerators.layeredDag(3, 5, 6, 1, 0, 1));
+        for (int i = 0; i < invalid.size(); i++) {
+            try {
+                invalid.get(i).run();
+                fail("Expected case " + i + " to be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testGridShape() {
+        Graph g = GraphGenerators.grid(3, 4, 1, 1, 2);
+        assertEquals(12, g.getVertices().size());
+        // 3 rows x 3 horizontal + 2 x 4 vertical pairs, both directions
+        assertEquals(2 * (3 * 3 + 2 * 4), g.getEdges().size());
+        assertEquals(2, g.getOutgoingEdges(0).size());
+        assertEquals(4, g.getOutgoingEdges(5).size());
+    }
+
+    @Test
+    public void testScaleFreeEdgeCount() {
+        Graph g = GraphGenerators.scaleFree(500, 2, 3, 0, 1);
+        assertEquals(500 * 2, g.getEdges().size());
+        assertEquals(g.getEdges().size(), distinctPairs(g).size());
+    }
+
+    @Test
+    public void testLayeredDagHasNoNegativeCycle() {
+        Graph g = GraphGenerators.layeredDag(6, 10, 3, 4, -5, 5);
+        assertEquals(5 * 10 * 3, g.getEdges().size());
+        for (Graph.Edge e : g.getEdges()) {
+            assertEquals(e.from / 10 + 1, e.to / 10);
+        }
+        assertTrue(new BellmanFordAlgorithm(g, 0).run());
+    }
+
+    @Test
+    public void testPlantedNegativeCycleIsDetected() {
+        Graph g = GraphGenerators.grid(5, 5, 2, 1, 3);
+        List<Integer> cycle = GraphGenerators.plantCycle(g, 4, -2, 8);
+        assertEquals(4, new HashSet<>(cycle).size());
+        assertEquals(cycle, GraphGenerators.plantCycle(GraphGenerators.grid(5, 5, 2, 1, 3), 4, -2, 8));
+        // The grid is strongly connected, so the cycle is reachable from 0
+        assertFalse(new BellmanFordAlgorithm(g, 0).run());
+    }
+
+    @Test
+    public void testRandomizeCompleteDagReplacesEdges() {
+        Graph g = new Graph();
+        g.addEdge(3, 0, 1);
+        g.addVertex(1);
+        g.addVertex(2);
+        GraphGenerators.randomizeCompleteDag(g, Arrays.asList(0, 1, 2, 3), 1);
+        assertEquals(6, g.getEdges().size());
+        for (Graph.Edge e : g.getEdges()) {
+            assertTrue(e.from < e.to);
+            assertTrue(e.weight >= -10 && e.weight <= 10);
+        }
+    }
+}
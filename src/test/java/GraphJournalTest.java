@@ -0,0 +1,213 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Tests for the graph mutation journal.
+ */
+public class GraphJournalTest {
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /** Vertices and "from->to" = weight, for comparing graphs. */
+    private Map<String, Double> contents(Graph g) {
+        Map<String, Double> contents = new TreeMap<>();
+        for (int v : g.getVertices()) {
+            contents.put("v" + v, 0.0);
+        }
+        for (Graph.Edge e : g.getEdges()) {
+            contents.put(e.from + "->" + e.to, e.weight);
+        }
+        return contents;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testReplayRestoresGraph() throws IOException {
+        Graph g = new Graph();
+        try (GraphJournal journal = GraphJournal.open(dir, g)) {
+            assertEquals(0, journal.getReplayedCount());
+            g.addEdge(0, 1, 4);
+            g.addEdge(1, 2, -3);
+            g.addEdge(0, 1, 2); // update
+            g.addVertex(7);
+            g.addEdge(2, 3, 1);
+            g.removeEdge(1, 2);
+            g.removeVertex(3);
+            g.appendEdge(2, 0, 5);
+        }
+        Graph restored = new Graph();
+        try (GraphJournal journal = GraphJournal.open(dir, restored)) {
+            assertTrue(journal.getReplayedCount() > 0);
+        }
+        assertEquals(contents(g), contents(restored));
+    }
+
+    @Test
+    public void testGroupCommitBatchesMutations() throws IOException {
+        Graph g = new Graph();
+        try (GraphJournal journal = GraphJournal.open(dir, g)) {
+            journal.setCommitInterval(50);
+            for (int i = 0; i < 2000; i++) {
+                g.appendEdge(i, i + 1, i);
+            }
+            journal.sync();
+            assertEquals(g.getVertices().size() + 2000, journal.getCommittedCount());
+            assertTrue("commits: " + journal.getCommitCount(), journal.getCommitCount() < 20);
+        }
+    }
+
+    @Test
+    public void testCompactionReplacesLogsWithSnapshot() throws IOException {
+        Graph g = new Graph();
+        try (GraphJournal journal = GraphJournal.open(dir, g)) {
+            for (int i = 0; i < 50; i++) {
+                g.addEdge(i, i + 1, i);
+            }
+            journal.compact();
+            g.addEdge(0, 1, -1);
+            g.removeVertex(50);
+        }
+        assertEquals(Arrays.asList("journal-1.log", "snapshot-1.bin"), files());
+        Graph restored = new Graph();
+        try (GraphJournal journal = GraphJournal.open(dir, restored)) {
+            assertEquals(2, journal.getReplayedCount()); // only the mutations after the snapshot
+        }
+        assertEquals(contents(g), contents(restored));
+    }
+
+    @Test
+    public void testAutomaticCompaction() throws IOException {
+        Graph g = GraphGenerators.randomSparse(200, 1000, 3, -5, 10);
+        try (GraphJournal journal = GraphJournal.open(dir, g)) {
+            journal.setCommitInterval(0);
+            journal.setCompactionThreshold(4096);
+            Random random = new Random(8);
+            for (int i = 0; i < 3000; i++) {
+                g.addEdge(random.nextInt(200), random.nextInt(200), random.nextInt(10));
+                if (i % 100 == 0) {
+                    journal.sync();
+                }
+            }
+        }
+        // The initial contents went to snapshot-0; later ones come from compaction
+        assertTrue(files().stream().anyMatch(name -> name.startsWith("snapshot-") && !name.equals("snapshot-0.bin")));
+        assertTrue(files().size() <= 3);
+        Graph restored = new Graph();
+        GraphJournal.open(dir, restored).close();
+        assertEquals(contents(g), contents(restored));
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws IOException {
+        Graph g = new Graph();
+        try (GraphJournal journal = GraphJournal.open(dir, g)) {
+            g.addEdge(0, 1, 4);
+            journal.sync();
+        }
+        Path log = dir.resolve("journal-0.log");
+        Files.write(log, new byte[] { 0, 0, 0, 17, 1, 2, 3 }, StandardOpenOption.APPEND);
+        long torn = Files.size(log);
+        Graph restored = new Graph();
+        GraphJournal journal = GraphJournal.open(dir, restored);
+        assertEquals(contents(g), contents(restored));
+        restored.addEdge(1, 0, 2);
+        journal.close();
+        assertTrue(Files.size(log) < torn + 40);
+        Graph again = new Graph();
+        GraphJournal.open(dir, again).close();
+        assertEquals(contents(restored), contents(again));
+    }
+
+    @Test
+    public void testSubscribersReceiveCommittedBatchesInOrder() throws IOException {
+        Graph g = new Graph();
+        List<GraphMutation> feed = new ArrayList<>();
+        Set<Thread> threads = new HashSet<>();
+        try (GraphJournal journal = GraphJournal.open(dir, g)) {
+            journal.subscribe(batch -> {
+                threads.add(Thread.currentThread());
+                // Reading the graph from a subscriber is safe
+                assertTrue(g.getVertices().containsAll(Arrays.asList(0, 1)));
+                feed.addAll(batch);
+            });
+            g.addEdge(0, 1, 4);
+            g.addVertex(0); // no change, not published
+            g.removeEdge(0, 1);
+            g.removeEdge(0, 1); // no change
+            journal.sync();
+            assertEquals("[ADD_VERTEX 0, ADD_VERTEX 1, ADD_EDGE 0->1 (4.0), REMOVE_EDGE 0->1]", feed.toString());
+            assertEquals(Collections.singleton(Thread.currentThread()), threads);
+        }
+    }
+
+    @Test
+    public void testListenersSeeCompletedOperations() {
+        Graph g = new Graph();
+        List<String> seen = new ArrayList<>();
+        g.addMutationListener(m -> seen.add(m + " edges=" + g.getEdges().size()));
+        int[] guardRuns = new int[1];
+        g.addMutationGuard(() -> guardRuns[0]++);
+        g.addEdge(0, 1, 4);
+        assertEquals(1, guardRuns[0]);
+        assertEquals(Arrays.asList("ADD_VERTEX 0 edges=1", "ADD_VERTEX 1 edges=1", "ADD_EDGE 0->1 (4.0) edges=1"), seen);
+        g.appendEdge(1, 2, 1);
+        assertEquals(2, guardRuns[0]);
+    }
+
+    @Test
+    public void testFailedJournalRejectsMutationsBeforeApplying() throws IOException {
+        Graph g = new Graph();
+        GraphJournal journal = GraphJournal.open(dir, g);
+        journal.setCommitInterval(0);
+        journal.setCompactionThreshold(1);
+        g.addEdge(0, 1, 1);
+        journal.sync();
+        // Compaction cannot start a new log once the directory is gone
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+        g.addEdge(1, 2, 1);
+        try {
+            g.addEdge(2, 3, 1);
+            fail("expected the journal to reject the mutation");
+        } catch (UncheckedIOException e) {
+            assertFalse(g.getVertices().contains(3));
+        }
+        try {
+            journal.close();
+            fail("expected close to report the failure");
+        } catch (IOException e) {
+            // expected
+        }
+        g.addEdge(2, 3, 1); // no longer journaled
+        assertTrue(g.getVertices().contains(3));
+    }
+}
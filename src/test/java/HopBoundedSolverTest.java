@@ -0,0 +1,80 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for hop-bounded shortest paths.
+ */
+public class HopBoundedSolverTest {
+    /** Cheap long route 0->1->2->3 versus expensive direct edges. */
+    private Graph transferGraph() {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 1);
+        g.addEdge(1, 2, 1);
+        g.addEdge(2, 3, 1);
+        g.addEdge(0, 3, 10);
+        g.addEdge(0, 2, 5);
+        return g;
+    }
+
+    @Test
+    public void testHopBoundLimitsPath() {
+        HopBoundedSolver solver = new HopBoundedSolver(transferGraph());
+        solver.solve(0, 1);
+        assertEquals(10.0, solver.getDistance(3), 1e-9);
+        assertEquals(Arrays.asList(0, 3), solver.getPath(3));
+
+        solver.solve(0, 2);
+        assertEquals(6.0, solver.getDistance(3), 1e-9);
+        assertEquals(Arrays.asList(0, 2, 3), solver.getPath(3));
+
+        solver.solve(0, 3);
+        assertEquals(3.0, solver.getDistance(3), 1e-9);
+        assertEquals(Arrays.asList(0, 1, 2, 3), solver.getPath(3));
+    }
+
+    @Test
+    public void testZeroHops() {
+        HopBoundedSolver solver = new HopBoundedSolver(transferGraph());
+        solver.solve(0, 0);
+        assertEquals(0.0, solver.getDistance(0), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, solver.getDistance(1), 1e-9);
+        assertTrue(solver.getPath(1).isEmpty());
+    }
+
+    @Test
+    public void testNegativeCycleStaysBounded() {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 1);
+        g.addEdge(1, 2, -1);
+        g.addEdge(2, 1, -1);
+        HopBoundedSolver solver = new HopBoundedSolver(g);
+        solver.solve(0, 4);
+        // 0->1->2->1->2 : 1 - 1 - 1 - 1
+        assertEquals(-2.0, solver.getDistance(2), 1e-9);
+        assertEquals(Arrays.asList(0, 1, 2, 1, 2), solver.getPath(2));
+    }
+
+    @Test
+    public void testMatchesFullRunWithEnoughHops() {
+        Graph g = transferGraph();
+        g.addEdge(3, 4, -2);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        assertTrue(bfa.run());
+        HopBoundedSolver solver = new HopBoundedSolver(g);
+        solver.solve(0, g.getVertices().size() - 1);
+        assertArrayEquals(bfa.getDistances(), solver.getDistances(), 1e-9);
+        // Early exit: the last path has 4 edges, one more round finds nothing
+        assertTrue(solver.getRounds() <= 5);
+    }
+
+    @Test
+    public void testReloadPicksUpNewEdges() {
+        Graph g = transferGraph();
+        HopBoundedSolver solver = new HopBoundedSolver(g);
+        g.addEdge(0, 3, 2);
+        solver.reload();
+        solver.solve(0, 1);
+        assertEquals(2.0, solver.getDistance(3), 1e-9);
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests that the solver emits its Flight Recorder events.
+ */
+public class JfrEventsTest {
+    private List<RecordedEvent> record(Runnable work, String... events) throws Exception {
+        Path file = Files.createTempFile("solver", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : events) {
+                recording.enable(event).withoutThreshold();
+            }
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRunAndRoundEvents() throws Exception {
+        Graph g = GraphGenerators.grid(4, 5, 3, 1, 9);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        List<RecordedEvent> events = record(bfa::run, "bellmanford.SolverRun", "bellmanford.SolverRound",
+                "bellmanford.TraceRecording");
+
+        List<RecordedEvent> runs = named(events, "bellmanford.SolverRun");
+        assertEquals(1, runs.size());
+        RecordedEvent run = runs.get(0);
+        assertEquals(20, run.getInt("vertices"));
+        assertEquals(g.getEdges().size(), run.getInt("edges"));
+        assertEquals(19, run.getInt("rounds"));
+        assertFalse(run.getBoolean("negativeCycle"));
+
+        List<RecordedEvent> rounds = named(events, "bellmanford.SolverRound");
+        assertEquals(19, rounds.size());
+        long relaxations = rounds.stream().mapToLong(e -> e.getLong("relaxations")).sum();
+        assertEquals(run.getLong("relaxations"), relaxations);
+        assertTrue(relaxations >= 19); // every vertex but the source is reached
+
+        List<RecordedEvent> recordings = named(events, "bellmanford.TraceRecording");
+        assertEquals(1, recordings.size());
+        assertEquals(bfa.getSteps().size(), recordings.get(0).getLong("steps"));
+    }
+
+    @Test
+    public void testWarmRunReportsPasses() throws Exception {
+        Graph g = GraphGenerators.grid(4, 5, 3, 1, 9);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        bfa.run();
+        double[] d = bfa.getDistances();
+        int[] p = bfa.getPredecessors();
+        g.addEdge(0, 19, 0.5);
+        bfa.warmStart(d, p, Collections.singletonList(0));
+        List<RecordedEvent> events = record(bfa::run, "bellmanford.SolverRun", "bellmanford.SolverRound");
+        RecordedEvent run = named(events, "bellmanford.SolverRun").get(0);
+        assertTrue(run.getBoolean("warmStart"));
+        assertEquals(run.getInt("rounds"), named(events, "bellmanford.SolverRound").size());
+        assertTrue(run.getInt("rounds") >= 1);
+    }
+}
@@ -0,0 +1,135 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for the streaming negative-cycle monitor.
+ */
+public class NegativeCycleMonitorTest {
+    private static Graph.Edge rate(int from, int to, double rate) {
+        return new Graph.Edge(from, to, -Math.log(rate));
+    }
+
+    /** True if the graph without {@code excluded} vertices has a negative cycle (plain Bellman-Ford). */
+    private static boolean hasNegativeCycleOutside(Graph g, Set<Integer> excluded) {
+        int size = g.getVertices().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+        double[] d = new double[size]; // virtual source: every vertex starts at 0
+        List<Graph.Edge> edges = new ArrayList<>();
+        for (Graph.Edge e : g.getEdges()) {
+            if (!excluded.contains(e.from) && !excluded.contains(e.to)) {
+                edges.add(e);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (Graph.Edge e : edges) {
+                d[e.to] = Math.min(d[e.to], d[e.from] + e.weight);
+            }
+        }
+        for (Graph.Edge e : edges) {
+            if (d[e.from] + e.weight < d[e.to] - 1e-9) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testArbitrageAppearsAndResolves() {
+        // 0 = USD, 1 = EUR, 2 = GBP
+        Graph g = new Graph();
+        for (Graph.Edge e : Arrays.asList(rate(0, 1, 0.9), rate(1, 0, 1.05), rate(1, 2, 0.85), rate(2, 1, 1.17),
+                rate(2, 0, 1.25), rate(0, 2, 0.72))) {
+            g.addEdge(e.from, e.to, e.weight);
+        }
+        NegativeCycleMonitor monitor = new NegativeCycleMonitor(g);
+        assertTrue(monitor.getCycles().isEmpty());
+
+        List<NegativeCycleMonitor.Cycle> alerts = new ArrayList<>();
+        monitor.setAlertListener(alerts::add);
+        // USD -> EUR -> GBP -> USD now returns 0.9 * 0.85 * 1.35 > 1
+        NegativeCycleMonitor.BatchReport report = monitor.applyBatch(Collections.singletonList(rate(2, 0, 1.35)));
+        assertEquals(1, report.newCycles.size());
+        assertEquals(alerts, report.newCycles);
+        NegativeCycleMonitor.Cycle cycle = alerts.get(0);
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), new HashSet<>(cycle.getVertices()));
+        assertEquals(0.9 * 0.85 * 1.35, cycle.getRateProduct(), 1e-9);
+        assertTrue(cycle.getAlertLatencyNanos() <= report.latencyNanos);
+        assertEquals(1, report.updates);
+
+        report = monitor.applyBatch(Collections.singletonList(rate(2, 0, 1.25)));
+        assertEquals(Collections.singletonList(cycle), report.retiredCycles);
+        assertEquals(0, report.liveCycles);
+        assertTrue(monitor.getCycles().isEmpty());
+    }
+
+    @Test
+    public void testRandomBatchesKeepCyclesConsistent() {
+        Random random = new Random(11);
+        Graph g = GraphGenerators.randomSparse(60, 240, 5, 1, 10);
+        NegativeCycleMonitor monitor = new NegativeCycleMonitor(g);
+        int found = 0, retired = 0;
+        for (int round = 0; round < 60; round++) {
+            List<Graph.Edge> batch = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int from = random.nextInt(60);
+                int to = random.nextInt(60);
+                if (from != to) {
+                    batch.add(new Graph.Edge(from, to, random.nextInt(25) - 6));
+                }
+            }
+            NegativeCycleMonitor.BatchReport report = monitor.applyBatch(batch);
+            found += report.newCycles.size();
+            retired += report.retiredCycles.size();
+            assertEquals(monitor.getCycles().size(), report.liveCycles);
+            Set<Integer> covered = new HashSet<>();
+            for (NegativeCycleMonitor.Cycle cycle : monitor.getCycles()) {
+                assertTrue(cycle.getWeight() < 0);
+                for (Graph.Edge e : cycle.getEdges()) {
+                    assertSame(e, findEdge(g, e.from, e.to));
+                    assertTrue("cycles share vertex " + e.from, covered.add(e.from));
+                }
+            }
+            assertFalse("round " + round, hasNegativeCycleOutside(g, covered));
+        }
+        assertTrue("found " + found + ", retired " + retired, found > 3 && retired > 0);
+    }
+
+    @Test
+    public void testLocalUpdateVisitsOnlyItsRegion() {
+        Graph g = GraphGenerators.grid(100, 100, 3, 1, 5);
+        NegativeCycleMonitor monitor = new NegativeCycleMonitor(g);
+        // Adding a cheap back edge next to an existing one makes a 2-cycle
+        NegativeCycleMonitor.BatchReport report = monitor.applyBatch(
+                Collections.singletonList(new Graph.Edge(1, 0, -10)));
+        assertEquals(1, report.newCycles.size());
+        assertTrue(report.visitedVertices < 100);
+    }
+
+    @Test
+    public void testDirectEditsAreRejectedUntilClosed() {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 1);
+        g.addEdge(1, 0, 1);
+        NegativeCycleMonitor monitor = new NegativeCycleMonitor(g);
+        try {
+            g.removeEdge(1, 0);
+            fail("expected the monitor to reject a direct edit");
+        } catch (IllegalStateException e) {
+            assertNotNull(findEdge(g, 1, 0));
+        }
+        monitor.applyBatch(Collections.singletonList(new Graph.Edge(1, 0, -2)));
+        assertEquals(1, monitor.getCycles().size());
+        monitor.close();
+        g.removeEdge(1, 0);
+        assertNull(findEdge(g, 1, 0));
+    }
+
+    private static Graph.Edge findEdge(Graph g, int from, int to) {
+        for (Graph.Edge e : g.getOutgoingEdges(from)) {
+            if (e.to == to) {
+                return e;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for potential-based single-pair queries.
+ */
+public class PairQuerySolverTest {
+    /** Shifts every weight by p(from) - p(to): negative edges, but no negative cycles. */
+    private static Graph shifted(Graph g, long seed) {
+        Random random = new Random(seed);
+        Map<Integer, Double> p = new HashMap<>();
+        for (int v : g.getVertices()) {
+            p.put(v, random.nextDouble() * 20);
+        }
+        Graph result = new Graph();
+        for (int v : g.getVertices()) {
+            result.addVertex(v);
+        }
+        for (Graph.Edge e : g.getEdges()) {
+            result.addEdge(e.from, e.to, e.weight + p.get(e.from) - p.get(e.to));
+        }
+        return result;
+    }
+
+    private static double pathWeight(Graph g, List<Integer> path) {
+        double total = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            double w = Double.NaN;
+            for (Graph.Edge e : g.getOutgoingEdges(path.get(i))) {
+                if (e.to == path.get(i + 1)) {
+                    w = e.weight;
+                }
+            }
+            total += w;
+        }
+        return total;
+    }
+
+    private static void assertMatches(Graph g, PairQuerySolver solver, int source, int target) {
+        ShortestPathResult want = new ComponentSolver(g).solve(source);
+        PairQuerySolver.Result got = solver.query(source, target);
+        String what = source + " -> " + target;
+        assertEquals(what, want.getDistance(target), got.distance, 1e-9);
+        if (Double.isFinite(got.distance)) {
+            assertEquals(what, Integer.valueOf(source), got.path.get(0));
+            assertEquals(what, Integer.valueOf(target), got.path.get(got.path.size() - 1));
+            assertEquals(what, got.distance, pathWeight(g, got.path), 1e-9);
+        } else {
+            assertTrue(got.path.isEmpty());
+        }
+    }
+
+    @Test
+    public void testMatchesFullSolveWithNegativeEdges() {
+        Graph g = shifted(GraphGenerators.grid(30, 30, 8, 1, 10), 8);
+        Random random = new Random(3);
+        for (boolean bidirectional : new boolean[] { true, false }) {
+            PairQuerySolver solver = new PairQuerySolver(g);
+            solver.setBidirectional(bidirectional);
+            for (int i = 0; i < 40; i++) {
+                assertMatches(g, solver, random.nextInt(900), random.nextInt(900));
+            }
+            assertMatches(g, solver, 5, 5);
+            assertEquals(1, solver.getPotentialComputations());
+        }
+    }
+
+    @Test
+    public void testNearbyTargetSettlesFewVertices() {
+        Graph g = GraphGenerators.grid(100, 100, 2, 1, 5);
+        PairQuerySolver solver = new PairQuerySolver(g);
+        PairQuerySolver.Result result = solver.query(5050, 5052);
+        assertTrue(result.potentialsComputed);
+        assertTrue("settled " + result.settledVertices, result.settledVertices < 1000);
+        assertFalse(solver.query(5050, 5052).potentialsComputed);
+    }
+
+    @Test
+    public void testPotentialsFollowGraphVersion() {
+        Graph g = shifted(GraphGenerators.randomSparse(300, 1200, 4, 0, 10), 4);
+        PairQuerySolver solver = new PairQuerySolver(g);
+        assertMatches(g, solver, 0, 150);
+        int fullRounds = solver.getPotentialRounds();
+
+        g.addEdge(0, 150, solver.query(0, 150).distance - 1);
+        assertMatches(g, solver, 0, 150);
+        assertEquals(2, solver.getPotentialComputations());
+        assertTrue(solver.getPotentialRounds() <= fullRounds);
+
+        g.removeEdge(0, 150);
+        g.addVertex(300);
+        assertMatches(g, solver, 0, 150);
+        assertMatches(g, solver, 0, 300);
+        assertEquals(3, solver.getPotentialComputations());
+    }
+
+    @Test
+    public void testNegativeCycleFallsBackToFullSolve() {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 1);
+        g.addEdge(1, 2, -2);
+        g.addEdge(2, 1, 1);
+        g.addEdge(0, 3, 2);
+        PairQuerySolver solver = new PairQuerySolver(g);
+        assertEquals(Double.NEGATIVE_INFINITY, solver.query(0, 2).distance, 0);
+        assertTrue(solver.query(0, 2).path.isEmpty());
+        assertEquals(Arrays.asList(0, 3), solver.query(0, 3).path);
+        assertEquals(Double.POSITIVE_INFINITY, solver.query(3, 0).distance, 0);
+        // One full solve per source, until the graph changes
+        assertEquals(2, solver.getFullSolves());
+        g.addEdge(3, 1, 5);
+        assertEquals(Double.NEGATIVE_INFINITY, solver.query(0, 1).distance, 0);
+        assertEquals(Double.NEGATIVE_INFINITY, solver.query(0, 2).distance, 0);
+        assertEquals(3, solver.getFullSolves());
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for playback frame arithmetic, driven frame by frame without the
+ * JavaFX toolkit.
+ */
+public class PlaybackEngineTest {
+    /** Records every seek and moves like the visualizer does. */
+    private static class FakeTarget implements PlaybackEngine.Target {
+        final int count;
+        int current;
+        final List<Integer> seeks = new ArrayList<>();
+
+        FakeTarget(int count, int current) {
+            this.count = count;
+            this.current = current;
+        }
+
+        @Override
+        public int getStepCount() {
+            return count;
+        }
+
+        @Override
+        public int getCurrentStep() {
+            return current;
+        }
+
+        @Override
+        public void seek(int index) {
+            seeks.add(index);
+            current = index + 1;
+        }
+    }
+
+    @Test
+    public void testFractionalSpeedAccumulatesAcrossFrames() {
+        FakeTarget target = new FakeTarget(10, 0);
+        PlaybackEngine engine = new PlaybackEngine(target);
+        engine.setStepsPerFrame(0.25);
+        for (int frame = 0; frame < 8; frame++) {
+            engine.frame();
+        }
+        assertEquals(Arrays.asList(0, 1), target.seeks);
+    }
+
+    @Test
+    public void testSkipsIntermediateStepsFromCurrentPosition() {
+        FakeTarget target = new FakeTarget(10, 5);
+        PlaybackEngine engine = new PlaybackEngine(target);
+        engine.setStepsPerFrame(2.5);
+        engine.frame(); // 2.5 -> two steps, 0.5 carried
+        engine.frame(); // 3.0 -> three steps
+        assertEquals(Arrays.asList(6, 9), target.seeks);
+    }
+
+    @Test
+    public void testStopsAtLastStep() {
+        FakeTarget target = new FakeTarget(50, 0);
+        PlaybackEngine engine = new PlaybackEngine(target);
+        engine.setStepsPerFrame(PlaybackEngine.MAX_STEPS_PER_FRAME);
+        engine.frame();
+        engine.frame();
+        assertEquals(Collections.singletonList(49), target.seeks);
+        assertFalse(engine.isPlaying());
+    }
+
+    @Test
+    public void testSpeedIsClamped() {
+        PlaybackEngine engine = new PlaybackEngine(new FakeTarget(1, 0));
+        engine.setStepsPerFrame(0);
+        assertEquals(PlaybackEngine.MIN_STEPS_PER_FRAME, engine.getStepsPerFrame(), 0);
+        engine.setStepsPerFrame(1e9);
+        assertEquals(PlaybackEngine.MAX_STEPS_PER_FRAME, engine.getStepsPerFrame(), 0);
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tests for the concurrent query service.
+ */
+public class ShortestPathServiceTest {
+    /** Executor that holds tasks until the test runs them. */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            pending.forEach(Runnable::run);
+        }
+    }
+
+    @Test
+    public void testMatchesBellmanFord() throws Exception {
+        Graph g = GraphGenerators.randomSparse(80, 400, 21, 0, 10);
+        GraphSnapshot snapshot = GraphSnapshot.of(g);
+        try (ShortestPathService service = new ShortestPathService(snapshot, 8)) {
+            List<CompletableFuture<ShortestPathResult>> futures = new ArrayList<>();
+            for (int s = 0; s < 8; s++) {
+                futures.add(service.query(s));
+            }
+            for (int s = 0; s < 8; s++) {
+                BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, s);
+                assertTrue(bfa.run());
+                ShortestPathResult result = futures.get(s).get(30, TimeUnit.SECONDS);
+                assertTrue(result.hasNoNegativeCycle());
+                assertArrayEquals(bfa.getDistances(), result.getDistances(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicateQueriesShareOneSolve() throws Exception {
+        Graph g = GraphGenerators.grid(4, 4, 1, 1, 2);
+        ManualExecutor executor = new ManualExecutor();
+        ShortestPathService service = new ShortestPathService(GraphSnapshot.of(g), 4, executor);
+        CompletableFuture<ShortestPathResult> a = service.query(0);
+        CompletableFuture<Map<Integer, Double>> b = service.query(0, 5, 15);
+        assertEquals(1, executor.tasks.size());
+        assertEquals(1, service.getMergedCount());
+        executor.runAll();
+        assertEquals(1, service.getSolveCount());
+        assertEquals(a.get().getDistance(15), b.get().get(15), 0);
+        assertEquals(Arrays.asList(5, 15), new ArrayList<>(b.get().keySet()));
+
+        // Once finished, the same source is solved again
+        service.query(0);
+        assertEquals(1, executor.tasks.size());
+    }
+
+    @Test
+    public void testRejectsWhenOverloaded() throws Exception {
+        Graph g = GraphGenerators.grid(3, 3, 1, 1, 2);
+        ManualExecutor executor = new ManualExecutor();
+        ShortestPathService service = new ShortestPathService(GraphSnapshot.of(g), 2, executor);
+        CompletableFuture<ShortestPathResult> first = service.query(0);
+        service.query(1);
+        CompletableFuture<ShortestPathResult> third = service.query(2);
+        assertTrue(third.isCompletedExceptionally());
+        try {
+            third.get();
+            fail("Expected rejection");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        // Duplicates of in-flight sources are still accepted
+        assertFalse(service.query(0).isCompletedExceptionally());
+        executor.runAll();
+        assertTrue(first.isDone());
+        assertFalse(service.query(2).isCompletedExceptionally());
+        assertEquals(1, service.getRejectedCount());
+    }
+
+    @Test
+    public void testNegativeCycleAndPaths() throws Exception {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 2);
+        g.addEdge(1, 2, 2);
+        g.addEdge(3, 4, -1);
+        g.addEdge(4, 3, -1);
+        try (ShortestPathService service = new ShortestPathService(GraphSnapshot.of(g), 2)) {
+            ShortestPathResult fromZero = service.query(0).get();
+            assertTrue(fromZero.hasNoNegativeCycle());
+            assertEquals(Arrays.asList(0, 1, 2), fromZero.getPath(2));
+            assertTrue(fromZero.getPath(4).isEmpty());
+            assertFalse(service.query(3).get().hasNoNegativeCycle());
+        }
+    }
+}
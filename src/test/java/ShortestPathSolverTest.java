@@ -0,0 +1,113 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for the engine-dispatching solver.
+ */
+public class ShortestPathSolverTest {
+    private ShortestPathResult bellmanFord(Graph g, int source) {
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, source);
+        bfa.setRecordSteps(false);
+        boolean ok = bfa.run();
+        return new ShortestPathResult(source, bfa.getDistances(), bfa.getPredecessors(), ok);
+    }
+
+    private void assertSameResult(Graph g, ShortestPathResult want, ShortestPathResult got) {
+        assertEquals(want.hasNoNegativeCycle(), got.hasNoNegativeCycle());
+        if (!want.hasNoNegativeCycle()) {
+            return;
+        }
+        for (int v : g.getVertices()) {
+            assertEquals("vertex " + v, want.getDistance(v), got.getDistance(v), 1e-9);
+            List<Integer> path = got.getPath(v);
+            if (v != got.getSource() && got.getDistance(v) != Double.POSITIVE_INFINITY) {
+                assertEquals(Integer.valueOf(got.getSource()), path.get(0));
+                assertEquals(Integer.valueOf(v), path.get(path.size() - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testDagUsesTopologicalOrder() {
+        Graph g = GraphGenerators.layeredDag(8, 30, 4, 2, -10, 10);
+        ShortestPathSolver solver = new ShortestPathSolver(g);
+        ShortestPathResult result = solver.solve(0);
+        assertEquals(ShortestPathSolver.Engine.DAG, solver.getLastReport().engine);
+        assertSameResult(g, bellmanFord(g, 0), result);
+    }
+
+    @Test
+    public void testNonNegativeCyclicGraphUsesDijkstra() {
+        Graph g = GraphGenerators.randomSparse(400, 3000, 6, 0, 20);
+        ShortestPathSolver solver = new ShortestPathSolver(g);
+        for (int source : new int[] { 0, 17, 399 }) {
+            ShortestPathResult result = solver.solve(source);
+            assertEquals(ShortestPathSolver.Engine.DIJKSTRA, solver.getLastReport().engine);
+            assertSameResult(g, bellmanFord(g, source), result);
+        }
+    }
+
+    @Test
+    public void testNegativeCyclicGraphUsesBellmanFord() {
+        Graph g = GraphGenerators.grid(10, 10, 4, -1, 10);
+        ShortestPathSolver solver = new ShortestPathSolver(g);
+        ShortestPathResult result = solver.solve(0);
+        assertEquals(ShortestPathSolver.Engine.BELLMAN_FORD, solver.getLastReport().engine);
+        assertSameResult(g, bellmanFord(g, 0), result);
+
+        g.addEdge(5, 6, -20);
+        g.addEdge(6, 5, -20);
+        solver = new ShortestPathSolver(g);
+        assertFalse(solver.solve(0).hasNoNegativeCycle());
+        assertEquals(ShortestPathSolver.Engine.BELLMAN_FORD, solver.getLastReport().engine);
+    }
+
+    @Test
+    public void testOnlyTheReachablePartDecides() {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 2);
+        g.addEdge(1, 2, 3);
+        g.addEdge(0, 2, 6);
+        g.addEdge(3, 4, -1); // unreachable negative cycle
+        g.addEdge(4, 3, -1);
+        ShortestPathSolver solver = new ShortestPathSolver(g);
+        ShortestPathResult result = solver.solve(0);
+        assertEquals(ShortestPathSolver.Engine.DAG, solver.getLastReport().engine);
+        assertEquals(3, solver.getLastReport().reachableVertices);
+        assertTrue(result.hasNoNegativeCycle());
+        assertEquals(Arrays.asList(0, 1, 2), result.getPath(2));
+        assertEquals(Double.POSITIVE_INFINITY, result.getDistance(3), 0);
+    }
+
+    @Test
+    public void testForcedEngines() {
+        Graph g = GraphGenerators.randomSparse(100, 600, 8, 0, 5);
+        ShortestPathSolver solver = new ShortestPathSolver(g);
+        ShortestPathResult auto = solver.solve(0);
+        solver.setEngine(ShortestPathSolver.Engine.BELLMAN_FORD);
+        assertSameResult(g, auto, solver.solve(0));
+        assertEquals(ShortestPathSolver.Engine.BELLMAN_FORD, solver.getLastReport().engine);
+        assertEquals("forced", solver.getLastReport().reason);
+        solver.setEngine(ShortestPathSolver.Engine.DAG);
+        try {
+            solver.solve(0);
+            fail("Expected the cycle to be reported");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testUnknownSourceIsRejected() {
+        Graph g = new Graph();
+        g.addEdge(0, 2, 1); // 1 is a gap in the ids
+        ShortestPathSolver solver = new ShortestPathSolver(g);
+        for (int source : new int[] { -1, 1, 3, 1000 }) {
+            try {
+                solver.solve(source);
+                fail("Expected source " + source + " to be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
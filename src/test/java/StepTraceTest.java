@@ -0,0 +1,207 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Tests for the struct-of-arrays step trace.
+ */
+public class StepTraceTest {
+    /** Recomputes the steps of run() with eager snapshots, as a reference. */
+    private List<BellmanFordAlgorithm.Step> eagerSteps(Graph g, int source) {
+        int size = g.getVertices().stream().mapToInt(Integer::intValue).max().orElse(0) + 1;
+        double[] d = new double[size];
+        int[] p = new int[size];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        Arrays.fill(p, -1);
+        d[source] = 0;
+        List<BellmanFordAlgorithm.Step> steps = new ArrayList<>();
+        List<Graph.Edge> edges = g.getEdges();
+        for (int i = 1; i < g.getVertices().size(); i++) {
+            for (Graph.Edge e : edges) {
+                boolean relaxed = d[e.from] + e.weight < d[e.to];
+                if (relaxed) {
+                    d[e.to] = d[e.from] + e.weight;
+                    p[e.to] = e.from;
+                }
+                steps.add(new BellmanFordAlgorithm.Step(i, e, d, p, relaxed));
+            }
+        }
+        return steps;
+    }
+
+    private void assertSameStep(BellmanFordAlgorithm.Step want, BellmanFordAlgorithm.Step got) {
+        assertEquals(want.iteration, got.iteration);
+        assertSame(want.edge, got.edge);
+        assertEquals(want.relaxed, got.relaxed);
+        assertArrayEquals(want.distanceSnapshot, got.distanceSnapshot, 0);
+        assertArrayEquals(want.predecessorSnapshot, got.predecessorSnapshot);
+    }
+
+    @Test
+    public void testViewMatchesEagerSnapshotsAcrossSegments() {
+        // 60 vertices x 300 edges x 59 rounds spans several 4096-step segments
+        Graph g = GraphGenerators.randomSparse(60, 300, 4, -1, 10);
+        g.addEdge(0, 1, 1); // make sure something is reachable
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        bfa.run();
+        List<BellmanFordAlgorithm.Step> expected = eagerSteps(g, 0);
+        List<BellmanFordAlgorithm.Step> steps = bfa.getSteps();
+        assertEquals(expected.size(), steps.size());
+        for (int i = 0; i < steps.size(); i += 97) {
+            assertSameStep(expected.get(i), steps.get(i));
+        }
+        assertSameStep(expected.get(expected.size() - 1), steps.get(steps.size() - 1));
+        StepTrace.View view = (StepTrace.View) steps;
+        for (int i = 0; i < steps.size(); i += 101) {
+            assertEquals(expected.get(i).iteration, view.iterationAt(i));
+            assertEquals(expected.get(i).relaxed, view.isRelaxed(i));
+        }
+    }
+
+    @Test
+    public void testRingBufferKeepsMostRecentSteps() {
+        Graph g = GraphGenerators.randomSparse(60, 300, 9, 0, 10);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        bfa.setTraceCapacity(5000);
+        bfa.run();
+        List<BellmanFordAlgorithm.Step> expected = eagerSteps(g, 0);
+        StepTrace trace = bfa.getTrace();
+        assertEquals(expected.size(), trace.getRecordedCount());
+        assertTrue(trace.size() >= 5000);
+        assertTrue(trace.size() < expected.size());
+        List<BellmanFordAlgorithm.Step> steps = bfa.getSteps();
+        long first = trace.getFirstStep();
+        assertEquals(expected.size(), first + steps.size());
+        assertSameStep(expected.get((int) first), steps.get(0));
+        assertSameStep(expected.get(expected.size() - 1), steps.get(steps.size() - 1));
+    }
+
+    @Test
+    public void testRecordingCanBeTurnedOff() {
+        Graph g = GraphGenerators.grid(4, 4, 2, 1, 2);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        bfa.setRecordSteps(false);
+        assertTrue(bfa.run());
+        assertTrue(bfa.getSteps().isEmpty());
+        bfa.setRecordSteps(true);
+        assertTrue(bfa.run());
+        assertEquals(eagerSteps(g, 0).size(), bfa.getSteps().size());
+    }
+
+    @Test
+    public void testSpilledStepsReadBackIdentically() throws Exception {
+        Path dir = Files.createTempDirectory("steptrace");
+        Graph g = GraphGenerators.randomSparse(60, 300, 4, -1, 10);
+        g.addEdge(0, 1, 1);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        bfa.setTraceMemoryBudget(200_000, dir);
+        bfa.run();
+        StepTrace trace = bfa.getTrace();
+        assertTrue(trace.getSpilledCount() > 0);
+        assertEquals(0, trace.getBudgetDroppedCount());
+        assertTrue(trace.getCheckpoints().isEmpty());
+        assertTrue(trace.getResidentBytes() <= 200_000 + 4096L * 17 + 12 * 61);
+        assertEquals(StepTrace.Detail.SPILLED, trace.getDetail(0));
+        assertEquals(StepTrace.Detail.FULL, trace.getDetail(trace.size() - 1));
+        List<BellmanFordAlgorithm.Step> expected = eagerSteps(g, 0);
+        List<BellmanFordAlgorithm.Step> steps = bfa.getSteps();
+        assertEquals(expected.size(), steps.size());
+        for (int i = 0; i < steps.size(); i += 89) {
+            assertSameStep(expected.get(i), steps.get(i));
+            assertEquals(expected.get(i).relaxed, trace.isRelaxed(i));
+        }
+        trace.clear();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            assertFalse(files.iterator().hasNext());
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testCloseDeletesSpillFile() throws Exception {
+        Path dir = Files.createTempDirectory("steptrace");
+        Graph g = GraphGenerators.randomSparse(60, 300, 4, -1, 10);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        bfa.setTraceMemoryBudget(100_000, dir);
+        bfa.run();
+        Path spill = bfa.getTrace().getSpillFile();
+        assertNotNull(spill);
+        assertTrue(Files.exists(spill));
+        bfa.close();
+        assertFalse(Files.exists(spill));
+        assertNull(bfa.getTrace().getSpillFile());
+        assertTrue(bfa.getSteps().isEmpty());
+        Files.delete(dir); // fails unless the directory is empty
+    }
+
+    @Test
+    public void testDropsToRoundCheckpointsWithoutSpillDirectory() {
+        Graph g = GraphGenerators.randomSparse(60, 300, 9, 0, 10);
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(g, 0);
+        bfa.setTraceMemoryBudget(100_000, null);
+        assertTrue(bfa.run());
+        StepTrace trace = bfa.getTrace();
+        List<BellmanFordAlgorithm.Step> expected = eagerSteps(g, 0);
+        assertEquals(expected.size(), trace.getRecordedCount());
+        long dropped = trace.getBudgetDroppedCount();
+        assertTrue(dropped > 0);
+        assertEquals(dropped, trace.getFirstStep());
+        assertEquals(StepTrace.Detail.FULL, trace.getDetail(0));
+
+        // Every checkpoint holds the state before its round's first step
+        assertFalse(trace.getCheckpoints().isEmpty());
+        for (StepTrace.Checkpoint c : trace.getCheckpoints()) {
+            int first = (int) c.step;
+            assertEquals(c.iteration, expected.get(first).iteration);
+            assertEquals(0, first % 300);
+            if (first > 0) {
+                assertArrayEquals(expected.get(first - 1).distanceSnapshot, c.distance, 0);
+                assertArrayEquals(expected.get(first - 1).predecessorSnapshot, c.predecessor);
+            }
+        }
+        StepTrace.Checkpoint before = trace.getCheckpoint(dropped - 1);
+        assertNotNull(before);
+        assertTrue(before.step <= dropped - 1);
+        // Retained steps keep full detail and real edges
+        assertSameStep(expected.get((int) dropped), trace.getStep(0));
+        assertSameStep(expected.get(expected.size() - 1), trace.getStep(trace.size() - 1));
+    }
+
+    @Test
+    public void testResidentBytesStayBoundedForLongRecordings() {
+        int n = 1000;
+        double[] distance = new double[n];
+        int[] predecessor = new int[n];
+        List<Graph.Edge> edges = Collections.singletonList(new Graph.Edge(0, 1, 1));
+        StepTrace trace = new StepTrace();
+        long budget = 200_000;
+        trace.setMemoryBudget(budget, null);
+        trace.begin(new Graph(), 0, edges, distance, predecessor);
+        long bound = budget + 4096L * 17 + 12L * n * 2;
+        long steps = 0;
+        // 2000 rounds of 2000 steps: about 68 MB of detail and 24 MB of round checkpoints
+        for (int round = 1; round <= 2000; round++) {
+            trace.beginRound(round);
+            for (int k = 0; k < 2000; k++) {
+                distance[k % n] = -steps;
+                trace.record(round, 0, true, -steps);
+                steps++;
+            }
+            assertTrue("round " + round + ": " + trace.getResidentBytes(), trace.getResidentBytes() <= bound);
+        }
+        trace.finish();
+        assertEquals(steps, trace.getRecordedCount());
+        assertEquals(trace.getFirstStep(), trace.getBudgetDroppedCount());
+        List<StepTrace.Checkpoint> checkpoints = trace.getCheckpoints();
+        assertTrue(checkpoints.size() >= 1 && checkpoints.size() <= budget / (12 * n) + 1);
+        assertEquals(2000, checkpoints.get(checkpoints.size() - 1).iteration);
+        trace.clear();
+        assertEquals(0, trace.getResidentBytes());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfRangeStep() {
+        new StepTrace().getStep(0);
+    }
+}
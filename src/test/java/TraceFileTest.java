@@ -0,0 +1,87 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Tests for the binary trace writer and memory-mapped reader.
+ */
+public class TraceFileTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Graph sampleGraph() {
+        Graph g = new Graph();
+        g.addEdge(0, 1, 4);
+        g.addEdge(0, 3, 5);
+        g.addEdge(1, 2, -3);
+        g.addEdge(2, 3, 4);
+        g.addVertex(7); // isolated, non-consecutive id
+        return g;
+    }
+
+    @Test
+    public void testTraceMatchesInMemorySteps() throws Exception {
+        Graph g = sampleGraph();
+        BellmanFordAlgorithm inMemory = new BellmanFordAlgorithm(g, 0);
+        assertTrue(inMemory.run());
+        List<BellmanFordAlgorithm.Step> expected = inMemory.getSteps();
+
+        Path file = tmp.newFile("run.bft").toPath();
+        BellmanFordAlgorithm traced = new BellmanFordAlgorithm(g, 0);
+        // Small interval so seeks cross several checkpoints
+        traced.setTraceWriter(new TraceWriter(file, 3));
+        assertTrue(traced.run());
+        assertTrue(traced.getSteps().isEmpty());
+
+        try (TraceReader reader = TraceReader.open(file)) {
+            assertEquals(expected.size(), reader.size());
+            assertEquals(0, reader.getSource());
+            assertEquals(g.getVertices(), reader.getGraph().getVertices());
+            TraceReader.View steps = reader.asSteps();
+            // Seek backwards to make sure access order does not matter
+            for (int i = steps.size() - 1; i >= 0; i--) {
+                BellmanFordAlgorithm.Step want = expected.get(i);
+                BellmanFordAlgorithm.Step got = steps.get(i);
+                assertEquals(want.iteration, got.iteration);
+                assertEquals(want.relaxed, got.relaxed);
+                assertEquals(want.iteration, steps.iterationAt(i));
+                assertEquals(want.relaxed, steps.isRelaxed(i));
+                assertEquals(want.edge.from, got.edge.from);
+                assertEquals(want.edge.to, got.edge.to);
+                assertArrayEquals(want.distanceSnapshot, got.distanceSnapshot, 1e-9);
+                assertArrayEquals(want.predecessorSnapshot, got.predecessorSnapshot);
+            }
+        }
+    }
+
+    @Test
+    public void testTraceEdgesBelongToReconstructedGraph() throws Exception {
+        Path file = tmp.newFile("edges.bft").toPath();
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(sampleGraph(), 0);
+        bfa.setTraceWriter(new TraceWriter(file));
+        bfa.run();
+        try (TraceReader reader = TraceReader.open(file)) {
+            List<Graph.Edge> edges = reader.getGraph().getEdges();
+            for (BellmanFordAlgorithm.Step step : reader.asSteps()) {
+                assertTrue(edges.stream().anyMatch(e -> e == step.edge));
+            }
+        }
+    }
+
+    @Test
+    public void testWriterOnlyTakesTheNextRun() throws Exception {
+        Path file = tmp.newFile("once.bft").toPath();
+        BellmanFordAlgorithm bfa = new BellmanFordAlgorithm(sampleGraph(), 0);
+        bfa.setTraceWriter(new TraceWriter(file));
+        assertTrue(bfa.run());
+        assertTrue(bfa.getSteps().isEmpty());
+        assertTrue(bfa.run()); // back to in-memory steps
+        assertFalse(bfa.getSteps().isEmpty());
+        try (TraceReader reader = TraceReader.open(file)) {
+            assertEquals(bfa.getSteps().size(), reader.size());
+        }
+    }
+}
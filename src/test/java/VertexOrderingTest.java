@@ -0,0 +1,170 @@
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+
+/**
+ * Tests for vertex reordering and reordered solving.
+ */
+public class VertexOrderingTest {
+    private void assertPermutation(Graph g, VertexOrdering order) {
+        assertEquals(g.getVertices().size(), order.size());
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < order.size(); i++) {
+            int v = order.toExternal(i);
+            assertTrue(g.getVertices().contains(v));
+            assertTrue(seen.add(v));
+            assertEquals(i, order.toInternal(v));
+        }
+    }
+
+    /** Max |internal(u) - internal(v)| over all edges. */
+    private int bandwidth(Graph g, VertexOrdering order) {
+        int bandwidth = 0;
+        for (Graph.Edge e : g.getEdges()) {
+            bandwidth = Math.max(bandwidth, Math.abs(order.toInternal(e.from) - order.toInternal(e.to)));
+        }
+        return bandwidth;
+    }
+
+    /** A 20x20 grid with vertex ids shuffled, like user-assigned ids. */
+    private Graph shuffledGrid(Map<Integer, Double[]> positions) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            ids.add(i * 7);
+        }
+        Collections.shuffle(ids, new Random(3));
+        Graph g = new Graph();
+        for (int r = 0; r < 20; r++) {
+            for (int c = 0; c < 20; c++) {
+                int v = ids.get(r * 20 + c);
+                positions.put(v, new Double[] { c * 10.0, r * 10.0 });
+                if (c + 1 < 20) {
+                    g.addEdge(v, ids.get(r * 20 + c + 1), 1 + (r + c) % 3);
+                    g.addEdge(ids.get(r * 20 + c + 1), v, 2);
+                }
+                if (r + 1 < 20) {
+                    g.addEdge(v, ids.get((r + 1) * 20 + c), 1 + (r * c) % 4);
+                    g.addEdge(ids.get((r + 1) * 20 + c), v, 3);
+                }
+            }
+        }
+        return g;
+    }
+
+    @Test
+    public void testOrderingsArePermutationsWithLocality() {
+        Map<Integer, Double[]> positions = new HashMap<>();
+        Graph g = shuffledGrid(positions);
+        int source = g.getVertices().iterator().next();
+        VertexOrdering identity = VertexOrdering.hilbert(g, Collections.emptyMap()); // id order
+        int baseline = bandwidth(g, identity);
+        for (VertexOrdering.Strategy strategy : VertexOrdering.Strategy.values()) {
+            VertexOrdering order = VertexOrdering.of(g, strategy, source, positions);
+            assertPermutation(g, order);
+            if (strategy != VertexOrdering.Strategy.HILBERT) {
+                // Hilbert keeps most neighbours close but has occasional long jumps
+                assertTrue(strategy + ": " + bandwidth(g, order) + " vs " + baseline,
+                        bandwidth(g, order) < baseline / 4);
+            }
+        }
+        assertEquals(source, VertexOrdering.bfs(g, source).toExternal(0));
+        assertTrue(bandwidth(g, VertexOrdering.reverseCuthillMcKee(g)) <= 40);
+    }
+
+    @Test
+    public void testHilbertKeepsNearbyVerticesClose() {
+        Map<Integer, Double[]> positions = new HashMap<>();
+        Graph g = shuffledGrid(positions);
+        VertexOrdering order = VertexOrdering.hilbert(g, positions);
+        long total = 0;
+        for (Graph.Edge e : g.getEdges()) {
+            total += Math.abs(order.toInternal(e.from) - order.toInternal(e.to));
+        }
+        assertTrue("mean gap " + total / g.getEdges().size(), total / g.getEdges().size() < 20);
+    }
+
+    @Test
+    public void testReorderedRunMatchesPlainRun() {
+        Map<Integer, Double[]> positions = new HashMap<>();
+        List<Graph> graphs = Arrays.asList(shuffledGrid(positions), GraphGenerators.randomSparse(300, 1500, 4, -2, 10),
+                GraphGenerators.layeredDag(6, 20, 3, 5, -5, 5));
+        for (Graph g : graphs) {
+            int source = g.getVertices().stream().mapToInt(Integer::intValue).min().getAsInt();
+            BellmanFordAlgorithm plain = new BellmanFordAlgorithm(g, source);
+            plain.setRecordSteps(false);
+            boolean expected = plain.run();
+            for (VertexOrdering.Strategy strategy : VertexOrdering.Strategy.values()) {
+                BellmanFordAlgorithm reordered = new BellmanFordAlgorithm(g, source);
+                reordered.setRecordSteps(false);
+                reordered.setVertexOrder(strategy, positions);
+                assertEquals(strategy.toString(), expected, reordered.run());
+                assertTrue(reordered.getSteps().isEmpty());
+                if (!expected) {
+                    continue;
+                }
+                double[] d = reordered.getDistances();
+                int[] p = reordered.getPredecessors();
+                assertArrayEquals(plain.getDistances(), d, 1e-9);
+                for (int v : g.getVertices()) {
+                    if (v != source && d[v] != Double.POSITIVE_INFINITY) {
+                        // The predecessor edge must realize the distance
+                        double via = Double.POSITIVE_INFINITY;
+                        for (Graph.Edge e : g.getOutgoingEdges(p[v])) {
+                            if (e.to == v) {
+                                via = d[p[v]] + e.weight;
+                            }
+                        }
+                        assertEquals(d[v], via, 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReorderedRunRecordsStepsByGraphEdge() {
+        Map<Integer, Double[]> positions = new HashMap<>();
+        Graph g = shuffledGrid(positions);
+        int source = g.getVertices().iterator().next();
+        BellmanFordAlgorithm plain = new BellmanFordAlgorithm(g, source);
+        plain.run();
+        BellmanFordAlgorithm reordered = new BellmanFordAlgorithm(g, source);
+        reordered.setVertexOrder(VertexOrdering.Strategy.BFS, positions);
+        assertTrue(reordered.run());
+        List<BellmanFordAlgorithm.Step> steps = reordered.getSteps();
+        assertFalse(steps.isEmpty());
+        // Fewer rounds than |V| - 1, and replaying the steps reaches the result
+        assertTrue(steps.size() < plain.getSteps().size());
+        double[] replayed = new double[reordered.getDistances().length];
+        Arrays.fill(replayed, Double.POSITIVE_INFINITY);
+        replayed[source] = 0;
+        for (BellmanFordAlgorithm.Step step : steps) {
+            Graph.Edge e = step.edge;
+            assertEquals(replayed[e.from] + e.weight < replayed[e.to], step.relaxed);
+            if (step.relaxed) {
+                replayed[e.to] = replayed[e.from] + e.weight;
+            }
+            assertEquals(replayed[e.to], step.distanceSnapshot[e.to], 1e-9);
+        }
+        assertArrayEquals(plain.getDistances(), replayed, 1e-9);
+        assertArrayEquals(reordered.getDistances(), steps.get(steps.size() - 1).distanceSnapshot, 1e-9);
+    }
+
+    @Test
+    public void testLayoutIsReusedUntilGraphChanges() {
+        Graph g = GraphGenerators.randomSparse(300, 1500, 4, 1, 10);
+        BellmanFordAlgorithm reordered = new BellmanFordAlgorithm(g, 0);
+        reordered.setRecordSteps(false);
+        reordered.setVertexOrder(VertexOrdering.Strategy.REVERSE_CUTHILL_MCKEE, null);
+        reordered.run();
+        reordered.run();
+        assertEquals(1, reordered.getLayoutBuilds());
+        g.addEdge(0, 299, 0.5);
+        reordered.run();
+        assertEquals(2, reordered.getLayoutBuilds());
+        BellmanFordAlgorithm plain = new BellmanFordAlgorithm(g, 0);
+        plain.setRecordSteps(false);
+        plain.run();
+        assertArrayEquals(plain.getDistances(), reordered.getDistances(), 1e-9);
+    }
+}